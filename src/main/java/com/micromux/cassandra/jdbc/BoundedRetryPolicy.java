@@ -0,0 +1,91 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.policies.RetryPolicy;
+
+/**
+ * Retry policy for the {@link Utils#TAG_CONNECTION_RETRIES} property: each failure is retried at the same consistency
+ * level until the configured number of retries is used up. The native driver only consults the policy about write
+ * timeouts and request errors for statements flagged idempotent, so writes that are not safe to repeat are never
+ * retried.
+ */
+class BoundedRetryPolicy implements RetryPolicy
+{
+
+    private final int retries;
+
+    BoundedRetryPolicy(int retries)
+    {
+        this.retries = retries;
+    }
+
+    int getRetries()
+    {
+        return retries;
+    }
+
+    public RetryDecision onReadTimeout(Statement statement, ConsistencyLevel cl, int requiredResponses,
+                                       int receivedResponses, boolean dataRetrieved, int nbRetry)
+    {
+        return (nbRetry < retries) ? RetryDecision.retry(cl) : RetryDecision.rethrow();
+    }
+
+    public RetryDecision onWriteTimeout(Statement statement, ConsistencyLevel cl, WriteType writeType,
+                                        int requiredAcks, int receivedAcks, int nbRetry)
+    {
+        return (nbRetry < retries) ? RetryDecision.retry(cl) : RetryDecision.rethrow();
+    }
+
+    public RetryDecision onUnavailable(Statement statement, ConsistencyLevel cl, int requiredReplica,
+                                       int aliveReplica, int nbRetry)
+    {
+        // the coordinator's view of the ring may be stale, another coordinator may see enough replicas
+        return (nbRetry < retries) ? RetryDecision.tryNextHost(cl) : RetryDecision.rethrow();
+    }
+
+    public RetryDecision onRequestError(Statement statement, ConsistencyLevel cl, DriverException e, int nbRetry)
+    {
+        return (nbRetry < retries) ? RetryDecision.tryNextHost(cl) : RetryDecision.rethrow();
+    }
+
+    public void init(Cluster cluster)
+    {
+        // nothing to do
+    }
+
+    public void close()
+    {
+        // nothing to do
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("BoundedRetryPolicy[retries=%d]", retries);
+    }
+
+}
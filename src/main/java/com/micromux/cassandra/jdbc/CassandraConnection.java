@@ -22,21 +22,45 @@ package com.micromux.cassandra.jdbc;
 
 import com.datastax.driver.core.*;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.HostFilterPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.PercentileSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.*;
+import java.net.InetAddress;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.sql.Connection;
 import java.sql.*;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,11 +78,39 @@ class CassandraConnection extends AbstractConnection implements Connection
 
     private static final Logger logger = Utils.getLogger();
 
+    private static final Pattern USE_KEYSPACE = Pattern.compile("^\\s*USE\\s+(\\S+?)\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+
     public static final int DB_MAJOR_VERSION = 2;
     public static final int DB_MINOR_VERSION = 1;
     public static final String DB_PRODUCT_NAME = "Cassandra";
     public static final String DEFAULT_CQL_VERSION = "3.0.0";
 
+    /**
+     * Client info property with the time it took to connect the session, whether eager or deferred
+     */
+    public static final String INFO_CONNECT_TIME = "ConnectTime";
+
+    /**
+     * Default time in milliseconds that the outcome of {@link #isValid(int)} is reused before probing again
+     */
+    static final int DEFAULT_VALIDATION_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Default number of requests that one connection may have in flight at once
+     */
+    static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    /**
+     * Default limits on one native batch; the byte limit matches the batch size warning threshold of Cassandra
+     */
+    static final int DEFAULT_MAX_BATCH_STATEMENTS = 100;
+    static final int DEFAULT_MAX_BATCH_BYTES = 5 * 1024;
+
+    /**
+     * Cheap query answered by the coordinator from its own local table
+     */
+    private static final String VALIDATION_QUERY = "SELECT release_version FROM system.local";
+
     protected boolean logEnable = false;
     protected String logPath = null;
 
@@ -68,7 +120,7 @@ class CassandraConnection extends AbstractConnection implements Connection
     private Properties connectionProps;
 
     /**
-     * Client Info Properties (currently unused)
+     * Client Info Properties; includes the seed hosts that responded when the cluster was bootstrapped
      */
     private Properties clientInfo = new Properties();
 
@@ -78,9 +130,19 @@ class CassandraConnection extends AbstractConnection implements Connection
     private Set<Statement> statements = new ConcurrentSkipListSet<Statement>();
 
     /**
-     * Cassandra 3.x Session
+     * Cassandra 3.x Session; {@code null} until connected when {@link Utils#TAG_LAZY_CONNECT} is enabled
      */
-    private Session session;
+    private volatile Session session;
+
+    /**
+     * Guards the deferred connect so that concurrent first use only connects once
+     */
+    private final Object connectLock = new Object();
+
+    /**
+     * Native cluster shared with other connections to the same hosts
+     */
+    private volatile ClusterReference clusterReference;
 
     protected String username = null;
     protected String url = null;
@@ -90,9 +152,52 @@ class CassandraConnection extends AbstractConnection implements Connection
     protected boolean sslEnable = false;
     protected boolean intellijQuirksMode = false;
     protected boolean dbvisQuirksMode = false;
+    protected boolean lazyConnect = false;
+
+    /**
+     * Outcome of the last validation probe and when it was taken, see {@link #isValid(int)}
+     */
+    private long validationIntervalNanos;
+    private volatile long validatedAt;
+    private volatile boolean lastValid;
 
     ConsistencyLevel defaultConsistencyLevel;
 
+    /**
+     * Unread rows in a page below which result sets request the next page in the background; zero disables prefetch
+     */
+    int prefetchThreshold;
+
+    /**
+     * Permits for the requests this connection may have in flight, or {@code null} when they are not bounded
+     */
+    private Semaphore inFlightPermits;
+
+    /**
+     * How statements queued with addBatch are grouped into native batches
+     */
+    BatchStatement.Type defaultBatchType;
+    int maxBatchStatements;
+    int maxBatchBytes;
+
+    /**
+     * Send each statement queued with addBatch as its own request rather than in native batches
+     */
+    boolean pipelinedBatches;
+
+    /**
+     * Execution profiles defined in the connection properties, by lower case name
+     */
+    private Map<String, ExecutionProfile> executionProfiles;
+
+    private final Runnable releaseInFlightPermit = new Runnable()
+    {
+        public void run()
+        {
+            inFlightPermits.release();
+        }
+    };
+
     /**
      * Instantiates a new CassandraConnection.
      */
@@ -104,13 +209,10 @@ class CassandraConnection extends AbstractConnection implements Connection
 
         url = PROTOCOL + createSubName(props);
 
-        String[] hosts;
         String host = props.getProperty(TAG_SERVER_NAME);
-        int port = Integer.parseInt(props.getProperty(TAG_PORT_NUMBER));
 
         currentKeyspace = props.getProperty(TAG_DATABASE_NAME);
         username = props.getProperty(TAG_USER);
-        String password = props.getProperty(TAG_PASSWORD);
         String version = props.getProperty(TAG_CQL_VERSION,DEFAULT_CQL_VERSION);
 
         connectionProps.setProperty(TAG_ACTIVE_CQL_VERSION, version);
@@ -132,80 +234,479 @@ class CassandraConnection extends AbstractConnection implements Connection
         logPath = props.getProperty(TAG_LOG_PATH);
         logEnable = (logPath != null) && Boolean.parseBoolean(props.getProperty(TAG_LOG_ENABLE, "false"));
 
-        // dealing with multiple hosts passed as seeds in the JDBC URL : jdbc:cassandra://lyn4e900.tlt--lyn4e901.tlt--lyn4e902.tlt:9160/fluks
-        // in this phase we get the list of all the nodes of the cluster
-        String currentHost = "";
+        // defer connecting until the connection is first used?
+        lazyConnect = Boolean.parseBoolean(props.getProperty(TAG_LAZY_CONNECT, "false"));
+
+        // how long a validation result may be reused, so that validating on every borrow stays cheap
+        validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intProperty(props, TAG_VALIDATION_INTERVAL, DEFAULT_VALIDATION_INTERVAL_MILLIS));
+        validatedAt = System.nanoTime() - validationIntervalNanos;
+
+        prefetchThreshold = intProperty(props, TAG_PREFETCH_THRESHOLD, 0);
+
+        int maxInFlight = intProperty(props, TAG_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT);
+        inFlightPermits = (maxInFlight > 0) ? new Semaphore(maxInFlight) : null;
+
+        defaultBatchType = batchType(props);
+        maxBatchStatements = Math.max(1, intProperty(props, TAG_MAX_BATCH_STATEMENTS, DEFAULT_MAX_BATCH_STATEMENTS));
+        maxBatchBytes = intProperty(props, TAG_MAX_BATCH_BYTES, DEFAULT_MAX_BATCH_BYTES);
+        pipelinedBatches = pipelinedBatches(props);
+        executionProfiles = ExecutionProfile.profiles(props);
 
         try {
 
-            if(host.contains("--")){
-                hosts = new String[host.split("--").length];
-                int i=0;
-                for(String h:host.split("--")){
-                    hosts[i]=h;
-                    i++;
-                }
-            }else{
-                hosts = new String[1];
-                hosts[0] = host;
-            }
+            // missing optional libraries are configuration errors, so report them even when connecting lazily
+            compression(props);
+            createSpeculativeExecutionPolicy(props);
+
+            // connections with matching properties share one native cluster
+            clusterReference = ClusterRegistry.acquire(props);
 
-            Random rand = new Random();
+            if (!lazyConnect) {
+                connect();
+            }
 
-            currentHost = hosts[rand.nextInt( hosts.length)];
-            logger.log(Level.INFO, "Chosen seed : " + currentHost);
+            // drive trace logging
+            trace("*** " + this.getClass().getName() + ": " + this.toString());
 
-            Cluster.Builder connectionBuilder = Cluster.builder().addContactPoint(host);
+        } catch (Exception e){
 
-            if (port > 0) {
-                connectionBuilder.withPort(port);
+            if (clusterReference != null) {
+                ClusterRegistry.release(clusterReference);
+                clusterReference = null;
             }
 
-            if (!StringUtils.isEmpty(username)) {
-                connectionBuilder.withCredentials(username, password);
+            String msg = String.format("Connection Fails to %s: %s", host, e.toString());
+            logger.log(Level.SEVERE, msg, e);
+            throw new SQLException(msg, e);
+        }
+
+    }
+
+    /**
+     * Connect to the shared session for the current keyspace and read the protocol version that was negotiated.
+     * The time this takes is published as the {@link #INFO_CONNECT_TIME} client info property.
+     * @throws SQLException  Unable to connect.
+     */
+    private void connect() throws SQLException
+    {
+        long start = System.nanoTime();
+
+        try {
+            session = clusterReference.connect(currentKeyspace);
+        } catch (DriverException dx) {
+            throw new SQLNonTransientConnectionException(String.format("Connection Fails to %s: %s", url, dx.toString()), dx);
+        }
+
+        clusterReference.describeSeeds(clientInfo);
+
+        // request version from session
+        Configuration configuration = session.getCluster().getConfiguration();
+        if ((configuration != null) && (configuration.getProtocolOptions() != null) && (configuration.getProtocolOptions().getProtocolVersion() != null)){
+
+            ProtocolVersion pv = configuration.getProtocolOptions().getProtocolVersion();
+
+            // recompute the CQL major version from the actual...
+            this.majorCqlVersion = pv.toInt();
+
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        clientInfo.setProperty(INFO_CONNECT_TIME, millis + "ms");
+        logger.log(Level.FINE, String.format("Connected%s to %s in %d ms", lazyConnect ? " (deferred)" : "", url, millis));
+    }
+
+    /**
+     * Session for this connection. When the connection was opened with {@link Utils#TAG_LAZY_CONNECT} the first
+     * call connects; concurrent callers wait for that single connect to complete.
+     * @return Connected session.
+     * @throws SQLException  Connection is closed or unable to connect.
+     */
+    private Session getSession() throws SQLException
+    {
+        Session current = session;
+        if (current != null) return current;
+
+        synchronized (connectLock) {
+            if (clusterReference == null) throw new SQLNonTransientConnectionException(WAS_CLOSED_CON);
+            if (session == null) {
+                connect();
             }
+            return session;
+        }
+    }
 
-            // configure SSL if specified
-            if (sslEnable) {
+    /**
+     * Bind this connection to the cached session for a keyspace. A connection that has not connected yet only
+     * records the keyspace; it is used when the deferred connect happens.
+     * @param keyspace  Keyspace to switch to.
+     * @throws SQLException  Connection is closed or the keyspace can not be used.
+     */
+    private void switchKeyspace(String keyspace) throws SQLException
+    {
+        synchronized (connectLock) {
+            if (clusterReference == null) throw new SQLNonTransientConnectionException(WAS_CLOSED_CON);
 
-                SSLOptions sslOptions = createSSLOptions(props);
+            if (session != null) {
+                Session previous = session;
 
-                if (sslOptions != null) {
-                    connectionBuilder.withSSL(sslOptions);
-                } else {
-                    logger.log(Level.WARNING, "SSL requested but trust store not valid");
+                try {
+                    session = clusterReference.connect(keyspace);
+                } catch (DriverException dx) {
+                    throw new SQLNonTransientException(String.format("Unable to use keyspace %s: %s", keyspace, dx.getMessage()), dx);
                 }
 
+                clusterReference.releaseSession(previous);
             }
 
-            Cluster cluster = connectionBuilder.build();
-            session = cluster.connect();
+            currentKeyspace = keyspace;
+        }
+    }
+
+    /**
+     * Create the builder for a native cluster from the connection properties. This is only called by the
+     * {@link ClusterRegistry} when no cluster with matching properties is already open.
+     * @param props  Connection properties.
+     * @param contactPoints  Seed hosts that responded to the seed probe.
+     * @return Builder configured from the properties.
+     * @throws SQLException  Invalid configuration; for example, an unreadable trust store.
+     */
+    static Cluster.Builder createClusterBuilder(Properties props, Collection<InetAddress> contactPoints) throws SQLException
+    {
+
+        // multiple hosts may be passed as seeds in the JDBC URL : jdbc:cassandra://lyn4e900.tlt--lyn4e901.tlt--lyn4e902.tlt:9160/fluks
+        // every seed that answered the probe becomes a contact point; the driver discovers the rest of the ring
+        int port = Integer.parseInt(props.getProperty(TAG_PORT_NUMBER));
+
+        String username = props.getProperty(TAG_USER);
+        String password = props.getProperty(TAG_PASSWORD);
+
+        Cluster.Builder connectionBuilder = Cluster.builder()
+                .addContactPoints(contactPoints)
+                .withSocketOptions(createSocketOptions(props))
+                .withPoolingOptions(createPoolingOptions(props))
+                .withCompression(compression(props));
+
+        if (port > 0) {
+            connectionBuilder.withPort(port);
+        }
+
+        LoadBalancingPolicy loadBalancingPolicy = createLoadBalancingPolicy(props);
+        if (loadBalancingPolicy != null) {
+            connectionBuilder.withLoadBalancingPolicy(loadBalancingPolicy);
+        }
+
+        RetryPolicy retryPolicy = createRetryPolicy(props);
+        if (retryPolicy != null) {
+            connectionBuilder.withRetryPolicy(retryPolicy);
+        }
+
+        SpeculativeExecutionPolicy speculativeExecutionPolicy = createSpeculativeExecutionPolicy(props);
+        if (speculativeExecutionPolicy != null) {
+            connectionBuilder.withSpeculativeExecutionPolicy(speculativeExecutionPolicy);
+        }
+
+        if (!StringUtils.isEmpty(username)) {
+            connectionBuilder.withCredentials(username, password);
+        }
+
+        // configure SSL if specified
+        if (Boolean.parseBoolean(props.getProperty(TAG_SSL_ENABLE, "false"))) {
+
+            SSLOptions sslOptions = createSSLOptions(props);
 
-            // if keyspace was specified - use it
-            if (!session.isClosed() && !StringUtils.isEmpty(currentKeyspace)) {
-                session.execute(String.format("USE %s;", currentKeyspace));
+            if (sslOptions != null) {
+                connectionBuilder.withSSL(sslOptions);
+            } else {
+                logger.log(Level.WARNING, "SSL requested but trust store not valid");
             }
 
-            // request version from session
-            Configuration configuration = session.getCluster().getConfiguration();
-            if ((configuration != null) && (configuration.getProtocolOptions() != null) && (configuration.getProtocolOptions().getProtocolVersion() != null)){
+        }
+
+        return connectionBuilder;
+
+    }
+
+    /**
+     * Socket options from {@link Utils#TAG_CONNECT_TIMEOUT}, {@link Utils#TAG_READ_TIMEOUT} and
+     * {@link Utils#TAG_TCP_NO_DELAY}; anything not specified keeps the native driver default.
+     */
+    static SocketOptions createSocketOptions(Properties props) throws SQLException
+    {
+        SocketOptions socketOptions = new SocketOptions()
+                .setConnectTimeoutMillis(intProperty(props, TAG_CONNECT_TIMEOUT, SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS))
+                .setReadTimeoutMillis(intProperty(props, TAG_READ_TIMEOUT, SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS));
+
+        String tcpNoDelay = props.getProperty(TAG_TCP_NO_DELAY);
+        if (tcpNoDelay != null) {
+            socketOptions.setTcpNoDelay(Boolean.parseBoolean(tcpNoDelay));
+        }
+
+        return socketOptions;
+    }
+
+    /**
+     * Pooling options for hosts in the local datacenter. The number of connections and the requests in flight on
+     * each connection bound how much concurrent work a single host is given; the native driver defaults depend
+     * on the protocol version, so they are only overridden when the matching property is set.
+     */
+    static PoolingOptions createPoolingOptions(Properties props) throws SQLException
+    {
+        PoolingOptions poolingOptions = new PoolingOptions();
+
+        int core = intProperty(props, TAG_CORE_CONNECTIONS, PoolingOptions.UNSET);
+        int max = intProperty(props, TAG_MAX_CONNECTIONS, PoolingOptions.UNSET);
 
-                ProtocolVersion pv = configuration.getProtocolOptions().getProtocolVersion();
+        // a pool without connections could never send a request
+        if (max == 0) {
+            throw new SQLNonTransientConnectionException(String.format(BAD_POSITIVE_PROPERTY, TAG_MAX_CONNECTIONS, props.getProperty(TAG_MAX_CONNECTIONS)));
+        }
+
+        if ((core != PoolingOptions.UNSET) || (max != PoolingOptions.UNSET)) {
+            // the driver rejects core above max, so a lone setting drags the other along with it
+            if (core == PoolingOptions.UNSET) core = Math.min(1, max);
+            if (max == PoolingOptions.UNSET) max = Math.max(1, core);
+            poolingOptions.setConnectionsPerHost(HostDistance.LOCAL, core, max);
+        }
+
+        int maxRequests = intProperty(props, TAG_MAX_REQUESTS, PoolingOptions.UNSET);
+        if (maxRequests != PoolingOptions.UNSET) {
+            poolingOptions.setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequests);
+        }
 
-                // recompute the CQL major version from the actual...
-                this.majorCqlVersion = pv.toInt();
+        poolingOptions.setHeartbeatIntervalSeconds(intProperty(props, TAG_HEARTBEAT_INTERVAL, PoolingOptions.DEFAULT_HEARTBEAT_INTERVAL_SECONDS));
 
+        return poolingOptions;
+    }
+
+    /**
+     * Token-aware routing over the datacenters named by {@link Utils#TAG_PRIMARY_DC} and {@link Utils#TAG_BACKUP_DC}.
+     * Requests go to replicas in the primary datacenter first. Every query plan then lists the hosts of the backup
+     * datacenter after all primary hosts, so a request only reaches the backup once each primary host it tried is
+     * down or failed. Hosts in any other datacenter are never used.
+     * @return The policy, or {@code null} to keep the native driver default when no primary datacenter is named.
+     */
+    static LoadBalancingPolicy createLoadBalancingPolicy(Properties props)
+    {
+        String primary = props.getProperty(TAG_PRIMARY_DC);
+        String backup = props.getProperty(TAG_BACKUP_DC);
+
+        if (StringUtils.isBlank(primary)) {
+            if (!StringUtils.isBlank(backup)) {
+                logger.log(Level.WARNING, String.format("backup datacenter '%s' ignored without a primary datacenter", backup));
             }
+            return null;
+        }
 
-            // drive trace logging
-            trace("*** " + this.getClass().getName() + ": " + this.toString());
+        DCAwareRoundRobinPolicy.Builder dcAware = DCAwareRoundRobinPolicy.builder().withLocalDc(primary.trim());
 
-        } catch (Exception e){
-            String msg = String.format("Connection Fails to %s: %s", currentHost, e.toString());
-            logger.log(Level.SEVERE, msg, e);
-            throw new SQLException(msg, e);
+        if (StringUtils.isBlank(backup)) {
+            return new TokenAwarePolicy(dcAware.build());
+        }
+
+        // every host in the backup datacenter is a failover candidate; the white list keeps out the rest
+        LoadBalancingPolicy failover = HostFilterPolicy.fromDCWhiteList(
+                dcAware.withUsedHostsPerRemoteDc(Integer.MAX_VALUE).build(),
+                Arrays.asList(primary.trim(), backup.trim()));
+
+        return new TokenAwarePolicy(failover);
+    }
+
+    /**
+     * Frame compression requested by {@link Utils#TAG_COMPRESSION}. The codecs are optional dependencies of the
+     * native driver, so one that is missing is reported here rather than as a failed handshake.
+     * @throws SQLNonTransientConnectionException  Unknown compression, or its codec is not on the classpath.
+     */
+    static ProtocolOptions.Compression compression(Properties props) throws SQLException
+    {
+        String value = props.getProperty(TAG_COMPRESSION);
+
+        if (StringUtils.isBlank(value)) {
+            return ProtocolOptions.Compression.NONE;
+        }
+
+        ProtocolOptions.Compression compression;
+        try {
+            compression = ProtocolOptions.Compression.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new SQLNonTransientConnectionException(String.format(BAD_COMPRESSION, value));
+        }
+
+        String codec = null;
+        switch (compression) {
+            case LZ4:
+                codec = "net.jpountz.lz4.LZ4Factory";
+                break;
+            case SNAPPY:
+                codec = "org.xerial.snappy.Snappy";
+                break;
+        }
+
+        if (codec != null) {
+            requireClass(String.format("compression '%s'", compression), codec);
+        }
+
+        return compression;
+    }
+
+    /**
+     * @return The native batch type named by {@link Utils#TAG_BATCH_TYPE}, unlogged when it is not set.
+     * @throws SQLException  The property does not name a batch type.
+     */
+    static BatchStatement.Type batchType(Properties props) throws SQLException
+    {
+        String value = props.getProperty(TAG_BATCH_TYPE);
+
+        if (StringUtils.isBlank(value)) {
+            return BatchStatement.Type.UNLOGGED;
         }
 
+        try {
+            return BatchStatement.Type.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new SQLNonTransientConnectionException(String.format(BAD_BATCH_TYPE, value));
+        }
+    }
+
+    /**
+     * @return {@code true} when {@link Utils#TAG_BATCH_MODE} is {@code pipelined}.
+     * @throws SQLException  The property is neither {@code batch} nor {@code pipelined}.
+     */
+    static boolean pipelinedBatches(Properties props) throws SQLException
+    {
+        String value = StringUtils.trimToEmpty(props.getProperty(TAG_BATCH_MODE));
+
+        if (value.isEmpty() || value.equalsIgnoreCase("batch")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("pipelined")) {
+            return true;
+        }
+        throw new SQLNonTransientConnectionException(String.format(BAD_BATCH_MODE, value));
+    }
+
+    /**
+     * Retry policy for {@link Utils#TAG_CONNECTION_RETRIES}.
+     * @return The policy, or {@code null} to keep the native driver default when the property is not set.
+     */
+    static RetryPolicy createRetryPolicy(Properties props) throws SQLException
+    {
+        int retries = intProperty(props, TAG_CONNECTION_RETRIES, -1);
+        return (retries < 0) ? null : new BoundedRetryPolicy(retries);
+    }
+
+    /**
+     * Speculative execution after a fixed {@link Utils#TAG_SPECULATIVE_DELAY}, or once a request has been outstanding
+     * longer than {@link Utils#TAG_SPECULATIVE_PERCENTILE} of recent requests to the same host. The native driver
+     * only ever speculates on statements flagged idempotent.
+     * @return The policy, or {@code null} when speculative execution is not configured.
+     * @throws SQLNonTransientConnectionException  Both kinds are requested, the percentile is not a valid value or
+     * the histogram library it needs is not on the classpath.
+     */
+    static SpeculativeExecutionPolicy createSpeculativeExecutionPolicy(Properties props) throws SQLException
+    {
+        int delay = intProperty(props, TAG_SPECULATIVE_DELAY, -1);
+        String percentile = props.getProperty(TAG_SPECULATIVE_PERCENTILE);
+        int executions = intProperty(props, TAG_SPECULATIVE_EXECUTIONS, 1);
+
+        if ((delay >= 0) && !StringUtils.isBlank(percentile)) {
+            throw new SQLNonTransientConnectionException(BAD_SPECULATION);
+        }
+
+        if (executions == 0) {
+            return null;
+        }
+
+        if (delay >= 0) {
+            return new ConstantSpeculativeExecutionPolicy(delay, executions);
+        }
+
+        if (!StringUtils.isBlank(percentile)) {
+
+            double value;
+            try {
+                value = Double.parseDouble(percentile.trim());
+            } catch (NumberFormatException e) {
+                value = -1;
+            }
+
+            if ((value <= 0) || (value >= 100)) {
+                throw new SQLNonTransientConnectionException(String.format(BAD_PERCENTILE, percentile));
+            }
+
+            requireClass("percentile speculative execution", "org.HdrHistogram.Recorder");
+
+            // latencies above the read timeout are failures rather than slow requests, so there is no need to track them
+            PercentileTracker tracker = PerHostPercentileTracker
+                    .builder(intProperty(props, TAG_READ_TIMEOUT, SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS))
+                    .build();
+
+            return new PercentileSpeculativeExecutionPolicy(tracker, value, executions);
+        }
+
+        return null;
+    }
+
+    /**
+     * Fail when an optional dependency of the native driver is missing, instead of when it is first needed.
+     */
+    private static void requireClass(String feature, String className) throws SQLException
+    {
+        try {
+            Class.forName(className, false, CassandraConnection.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SQLNonTransientConnectionException(String.format(NO_OPTIONAL_CLASS, feature, className), e);
+        } catch (LinkageError e) {
+            throw new SQLNonTransientConnectionException(String.format(NO_OPTIONAL_CLASS, feature, className), e);
+        }
+    }
+
+    /**
+     * Read a non-negative integer property.
+     * @throws SQLNonTransientConnectionException  The property is set but is not a non-negative integer.
+     */
+    static int intProperty(Properties props, String tag, int defaultValue) throws SQLException
+    {
+        String value = props.getProperty(tag);
+
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+
+        throw new SQLNonTransientConnectionException(String.format(BAD_NUMBER_PROPERTY, tag, value));
+    }
+
+    /**
+     * Read a non-negative integer property that may exceed the range of an {@code int}, such as a time in
+     * milliseconds.
+     * @throws SQLNonTransientConnectionException  The property is set but is not a non-negative integer.
+     */
+    static long longProperty(Properties props, String tag, long defaultValue) throws SQLException
+    {
+        String value = props.getProperty(tag);
+
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+
+        try {
+            long result = Long.parseLong(value.trim());
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+
+        throw new SQLNonTransientConnectionException(String.format(BAD_NUMBER_PROPERTY, tag, value));
     }
 
     private static SSLOptions createSSLOptions(Properties properties) throws SQLException
@@ -413,13 +914,22 @@ class CassandraConnection extends AbstractConnection implements Connection
     public String getCatalog() throws SQLException
     {
         checkNotClosed();
-        return session.getCluster().getClusterName();
+        return getSession().getCluster().getClusterName();
     }
 
+    /**
+     * Switch this connection to another keyspace. Sessions are cached per keyspace on the shared cluster, so
+     * switching to a keyspace that is already in use does not go to the network.
+     *
+     * @param schema the name of a keyspace in which to work
+     * @exception SQLException if a database access error occurs
+     * or this method is called on a closed connection
+     * @see #getSchema
+     */
     public void setSchema(String schema) throws SQLException
     {
         checkNotClosed();
-        currentKeyspace = schema;
+        switchKeyspace(schema);
     }
 
     /**
@@ -435,18 +945,20 @@ class CassandraConnection extends AbstractConnection implements Connection
     public String getSchema() throws SQLException
     {
         checkNotClosed();
-        return session.getLoggedKeyspace();
+        return getSession().getLoggedKeyspace();
     }
 
     public Properties getClientInfo() throws SQLException
     {
         checkNotClosed();
+        clusterReference.getPreparedStatements().describe(clientInfo);
         return clientInfo;
     }
 
     public String getClientInfo(String label) throws SQLException
     {
         checkNotClosed();
+        clusterReference.getPreparedStatements().describe(clientInfo);
         return clientInfo.getProperty(label);
     }
 
@@ -489,15 +1001,85 @@ class CassandraConnection extends AbstractConnection implements Connection
     }
 
     /**
-     * Returns true if the connection has not been closed and is still valid.
-     * @param timeout  Time in seconds to wait for the database verification operation to complete.
+     * Returns true if the connection has not been closed and the cluster still answers a lightweight query.
+     * The outcome is reused for {@link Utils#TAG_VALIDATION_INTERVAL} milliseconds so that pools validating each
+     * connection they hand out do not add a round trip to every borrow.
+     * @param timeout  Time in seconds to wait for the database verification operation to complete; 0 waits for
+     *                 the socket read timeout.
      * @return Result is {@code true} if connection is alive or {@code false} if it tries
      *         to verify and times out.
-     * @throws SQLTimeoutException
+     * @throws SQLException  The timeout is negative.
      */
-    public boolean isValid(int timeout) throws SQLTimeoutException
+    public boolean isValid(int timeout) throws SQLException
     {
-        return ((session != null) && !session.isClosed());
+        if (timeout < 0) throw new SQLNonTransientException(BAD_TIMEOUT);
+
+        if (!isConnected()) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (now - validatedAt < validationIntervalNanos) {
+            return lastValid;
+        }
+
+        boolean valid = probe(timeout);
+
+        lastValid = valid;
+        validatedAt = System.nanoTime();
+
+        return valid;
+    }
+
+    /**
+     * Check that the session still has an open connection to some host, then that a host answers
+     * {@link #VALIDATION_QUERY} within the timeout.
+     */
+    private boolean probe(int timeout)
+    {
+        try {
+            Session current = getSession();
+            if (current.isClosed()) {
+                return false;
+            }
+
+            // when the pools have no open connection the cluster is known to be unreachable without asking it
+            Session.State state = current.getState();
+            boolean open = false;
+            for (Host host : state.getConnectedHosts()) {
+                open |= state.getOpenConnections(host) > 0;
+            }
+            if (!open) {
+                return false;
+            }
+
+            com.datastax.driver.core.Statement query = new SimpleStatement(VALIDATION_QUERY).setIdempotent(true);
+            if (timeout > 0) {
+                query.setReadTimeoutMillis((int) TimeUnit.SECONDS.toMillis(timeout));
+            }
+
+            ResultSetFuture future = current.executeAsync(query);
+            try {
+                if (timeout > 0) {
+                    future.getUninterruptibly(timeout, TimeUnit.SECONDS);
+                } else {
+                    future.getUninterruptibly();
+                }
+            } catch (TimeoutException tx) {
+                future.cancel(true);
+                logger.log(Level.FINE, "Connection validation timed out: " + url);
+                return false;
+            }
+
+            return true;
+
+        } catch (SQLException sx) {
+            logger.log(Level.FINE, "Connection is not valid: " + url, sx);
+            return false;
+        } catch (DriverException dx) {
+            logger.log(Level.FINE, "Connection is not valid: " + url, dx);
+            return false;
+        }
     }
 
     public boolean isWrapperFor(Class<?> arg0) throws SQLException
@@ -597,14 +1179,109 @@ class CassandraConnection extends AbstractConnection implements Connection
      * Execute a CQL query.
      *
      * @param queryStr    a CQL query string
+     * @param statement   the JDBC statement whose consistency level and other options apply to the request
+     * @throws SQLException  Unable to switch to the keyspace named by a {@code USE} statement.
+     */
+    protected com.datastax.driver.core.ResultSet execute(String queryStr, CassandraStatement statement) throws SQLException
+    {
+        return statement.await(executeAsync(queryStr, statement));
+    }
+
+    /**
+     * Send a CQL query without waiting for its result.
+     *
+     * @param queryStr    a CQL query string
+     * @param statement   the JDBC statement whose consistency level and other options apply to the request
+     * @throws SQLException  Unable to switch to the keyspace named by a {@code USE} statement.
+     */
+    ResultSetFuture executeAsync(String queryStr, CassandraStatement statement) throws SQLException
+    {
+        String sql = scrub(queryStr);
+        trace(sql);
+
+        // sessions are shared so a USE statement must switch sessions rather than alter the current one
+        Matcher use = USE_KEYSPACE.matcher(sql);
+        if (use.matches()) {
+            switchKeyspace(use.group(1));
+        }
+
+        return submit(statement.configure(new SimpleStatement(sql)), statement);
+
+    }
+
+    /**
+     * The native statement for one CQL statement queued in a batch.
      */
-    protected com.datastax.driver.core.ResultSet execute(String queryStr, ConsistencyLevel consistencyLevel)
+    SimpleStatement batchEntry(String queryStr)
     {
         String sql = scrub(queryStr);
         trace(sql);
+        return new SimpleStatement(sql);
+    }
+
+    /**
+     * Execute a native batch on behalf of a JDBC statement.
+     */
+    final com.datastax.driver.core.ResultSet execute(BatchStatement batch, CassandraStatement statement) throws SQLException
+    {
+        return statement.await(executeAsync(batch, statement));
+    }
+
+    /**
+     * Send a native statement built on behalf of a JDBC statement without waiting for its result.
+     */
+    final ResultSetFuture executeAsync(com.datastax.driver.core.Statement request, CassandraStatement statement) throws SQLException
+    {
+        return submit(statement.configure(request), statement);
+    }
+
+    /**
+     * Send a request once one of this connection's in-flight permits is free; the permit is returned when the
+     * request completes, fails or is cancelled. Callers wait here, rather than the driver queueing without limit,
+     * when {@link Utils#TAG_MAX_IN_FLIGHT} requests are already outstanding, for no longer than the timeout of the
+     * statement; see {@link CassandraStatement#acquirePermit(Semaphore, long)}.
+     */
+    private ResultSetFuture submit(com.datastax.driver.core.Statement request, CassandraStatement statement) throws SQLException
+    {
+        Session current = getSession();
+        if (inFlightPermits == null) {
+            return current.executeAsync(request);
+        }
 
-        return session.execute(sql);
+        int readTimeout = current.getCluster().getConfiguration().getSocketOptions().getReadTimeoutMillis();
+        statement.acquirePermit(inFlightPermits, (readTimeout > 0) ? readTimeout : SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS);
+
+        ResultSetFuture future;
+        try {
+            future = current.executeAsync(request);
+        } catch (RuntimeException e) {
+            inFlightPermits.release();
+            throw e;
+        }
+
+        future.addListener(releaseInFlightPermit, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Requests that may still be sent before callers have to wait for one in flight to complete.
+     */
+    int availableInFlightPermits()
+    {
+        return (inFlightPermits == null) ? Integer.MAX_VALUE : inFlightPermits.availablePermits();
+    }
 
+    /**
+     * @return The execution profile with the name, ignoring case.
+     * @throws SQLException  No profile of that name is defined for this connection.
+     */
+    ExecutionProfile getExecutionProfile(String name) throws SQLException
+    {
+        ExecutionProfile profile = executionProfiles.get(name.toLowerCase(Locale.ENGLISH));
+        if (profile == null) {
+            throw new SQLNonTransientException(String.format(NO_PROFILE, name));
+        }
+        return profile;
     }
 
     private String scrub(String queryStr) {
@@ -633,11 +1310,74 @@ class CassandraConnection extends AbstractConnection implements Connection
 
     }
 
-    protected com.datastax.driver.core.PreparedStatement prepare(String queryStr)
+    protected com.datastax.driver.core.PreparedStatement prepare(String queryStr) throws SQLException
     {
-        return session.prepare(scrub(queryStr));
+        Session current = getSession();
+        return clusterReference.prepare(current, scrub(queryStr));
     }
-    
+
+    /**
+     * Generation of the prepared statement cache of the shared cluster; it moves on whenever a statement is prepared
+     * again after a schema change.
+     */
+    long getPreparedGeneration()
+    {
+        return clusterReference.getPreparedStatements().getGeneration();
+    }
+
+    /**
+     * Key the prepared statement cache of the shared cluster holds a query under in the current keyspace; taken when
+     * the query is prepared, so that its replacement can be found after a schema change.
+     */
+    String preparedKey(String queryStr) throws SQLException
+    {
+        return PreparedStatementCache.key(getSession(), scrub(queryStr));
+    }
+
+    /**
+     * Return the statement prepared most recently for a query, after any schema change, without waiting for any
+     * request.
+     * @param key  Key returned from {@link #preparedKey(String)}.
+     * @return Newest statement for the query; {@code null} when the query is no longer cached.
+     */
+    PreparedStatement latest(String key)
+    {
+        return clusterReference.getPreparedStatements().latest(key);
+    }
+
+    /**
+     * Prepare queries ahead of their first use, sending every prepare request at once. The statements land in the
+     * prepared statement cache of the shared cluster, so any connection to it can then prepare them without a round
+     * trip. A query that fails to prepare is logged and skipped.
+     * @param queries  Queries to prepare.
+     * @return Number of queries prepared.
+     * @throws SQLException  The connection is closed or can not connect.
+     */
+    int warmUp(Collection<String> queries) throws SQLException
+    {
+        checkNotClosed();
+        Session current = getSession();
+
+        List<String> sent = new ArrayList<String>(queries);
+        List<ListenableFuture<PreparedStatement>> futures = new ArrayList<ListenableFuture<PreparedStatement>>(sent.size());
+        for (String query : sent) {
+            futures.add(clusterReference.getPreparedStatements().prepareAsync(current, scrub(query)));
+        }
+
+        int prepared = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Uninterruptibles.getUninterruptibly(futures.get(i));
+                prepared++;
+            } catch (ExecutionException e) {
+                logger.log(Level.WARNING, String.format("Unable to prepare warm-up query '%s'", sent.get(i)), e.getCause());
+            }
+        }
+
+        logger.log(Level.FINE, String.format("Prepared %d of %d warm-up queries on %s", prepared, futures.size(), url));
+        return prepared;
+    }
+
     /**
      * Remove a Statement from the Open Statements List
      */
@@ -651,7 +1391,20 @@ class CassandraConnection extends AbstractConnection implements Connection
      */
     protected void disconnect()
     {
-        session.close();
+        ClusterReference reference;
+        Session current;
+
+        synchronized (connectLock) {
+            reference = clusterReference;
+            current = session;
+            session = null;
+            clusterReference = null;
+        }
+
+        if (reference != null) {
+            if (current != null) reference.releaseSession(current);
+            ClusterRegistry.release(reference);
+        }
     }
 
     /**
@@ -659,7 +1412,8 @@ class CassandraConnection extends AbstractConnection implements Connection
      */
     protected boolean isConnected()
     {
-        return ((session != null) && !session.isClosed());
+        Session current = session;
+        return (clusterReference != null) && ((current == null) || !current.isClosed());
     }
 
     public String toString()
@@ -667,13 +1421,27 @@ class CassandraConnection extends AbstractConnection implements Connection
         return ReflectionToStringBuilder.toString(this);
     }
 
-    protected final com.datastax.driver.core.ResultSet execute(PreparedStatement preparedStatement, BoundStatement boundStatement) {
+    protected final com.datastax.driver.core.ResultSet execute(PreparedStatement preparedStatement, BoundStatement boundStatement,
+                                                               CassandraStatement statement) throws SQLException {
+        return statement.await(executeAsync(preparedStatement, boundStatement, statement));
+    }
+
+    final ResultSetFuture executeAsync(PreparedStatement preparedStatement, BoundStatement boundStatement,
+                                       CassandraStatement statement) throws SQLException {
         if (preparedStatement != null) trace(preparedStatement.getQueryString());
-        return session.execute(boundStatement);
+        return submit(statement.configure(boundStatement), statement);
+    }
+
+    final ClusterReference getClusterReference() {
+        return clusterReference;
+    }
+
+    final Semaphore getInFlightPermits() {
+        return inFlightPermits;
     }
 
     public final Cluster getCluster() throws SQLException {
         checkNotClosed();
-        return session.getCluster();
+        return getSession().getCluster();
     }
 }
@@ -21,6 +21,9 @@
 package com.micromux.cassandra.jdbc;
 
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.SocketOptions;
 
 import java.sql.*;
 import java.util.*;
@@ -118,7 +121,7 @@ public class CassandraDriver implements Driver
     {
         if (props == null) props = new Properties();
 
-        int mp = 11;
+        int mp = 35;
         DriverPropertyInfo[] info = new DriverPropertyInfo[mp];
 
         info[--mp] = new DriverPropertyInfo(TAG_USER, props.getProperty(TAG_USER));
@@ -179,6 +182,111 @@ public class CassandraDriver implements Driver
         info[--mp] = new DriverPropertyInfo(TAG_LOG_PATH, props.getProperty(TAG_LOG_PATH));
         info[mp].description = "File for logging CQL statements";
 
+        info[--mp] = new DriverPropertyInfo(TAG_CONNECT_TIMEOUT, props.getProperty(TAG_CONNECT_TIMEOUT));
+        info[mp].description = "Milliseconds to wait for a seed host to accept a connection; all seeds are tried in parallel";
+        info[mp].value = "" + SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_LAZY_CONNECT, props.getProperty(TAG_LAZY_CONNECT));
+        info[mp].description = "Defer connecting to the cluster until the connection is first used";
+        info[mp].choices = new String[2];
+        info[mp].choices[0] = "true";
+        info[mp].choices[1] = "false";
+        info[mp].value = "false";
+
+        info[--mp] = new DriverPropertyInfo(TAG_SESSION_IDLE_TIMEOUT, props.getProperty(TAG_SESSION_IDLE_TIMEOUT));
+        info[mp].description = "Milliseconds a keyspace session may go unused before it is closed";
+        info[mp].value = "" + ClusterReference.DEFAULT_SESSION_IDLE_MILLIS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_READ_TIMEOUT, props.getProperty(TAG_READ_TIMEOUT));
+        info[mp].description = "Milliseconds to wait for a host to answer a request before trying the next host";
+        info[mp].value = "" + SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_TCP_NO_DELAY, props.getProperty(TAG_TCP_NO_DELAY));
+        info[mp].description = "Disable Nagle's algorithm on connections to the cluster";
+        info[mp].choices = new String[2];
+        info[mp].choices[0] = "true";
+        info[mp].choices[1] = "false";
+        info[mp].value = "true";
+
+        Map<String, Integer> poolDefaults = PoolingOptions.DEFAULTS.get(ProtocolVersion.NEWEST_SUPPORTED);
+
+        info[--mp] = new DriverPropertyInfo(TAG_CORE_CONNECTIONS, props.getProperty(TAG_CORE_CONNECTIONS));
+        info[mp].description = "Connections always kept open to each host in the local datacenter";
+        info[mp].value = "" + poolDefaults.get(PoolingOptions.CORE_POOL_LOCAL_KEY);
+
+        info[--mp] = new DriverPropertyInfo(TAG_MAX_CONNECTIONS, props.getProperty(TAG_MAX_CONNECTIONS));
+        info[mp].description = "Most connections opened to each host in the local datacenter under load";
+        info[mp].value = "" + poolDefaults.get(PoolingOptions.MAX_POOL_LOCAL_KEY);
+
+        info[--mp] = new DriverPropertyInfo(TAG_MAX_REQUESTS, props.getProperty(TAG_MAX_REQUESTS));
+        info[mp].description = "Most requests in flight at once on each connection to a host in the local datacenter";
+        info[mp].value = "" + poolDefaults.get(PoolingOptions.MAX_REQUESTS_PER_CONNECTION_LOCAL_KEY);
+
+        info[--mp] = new DriverPropertyInfo(TAG_HEARTBEAT_INTERVAL, props.getProperty(TAG_HEARTBEAT_INTERVAL));
+        info[mp].description = "Seconds a connection may be idle before a heartbeat is sent; 0 disables heartbeats";
+        info[mp].value = "" + PoolingOptions.DEFAULT_HEARTBEAT_INTERVAL_SECONDS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_COMPRESSION, props.getProperty(TAG_COMPRESSION));
+        info[mp].description = "Compress frames sent to and from the cluster; lz4 and snappy need their codec on the classpath";
+        info[mp].choices = new String[3];
+        info[mp].choices[0] = "none";
+        info[mp].choices[1] = "lz4";
+        info[mp].choices[2] = "snappy";
+        info[mp].value = "none";
+
+        info[--mp] = new DriverPropertyInfo(TAG_PRIMARY_DC, props.getProperty(TAG_PRIMARY_DC));
+        info[mp].description = "Datacenter that serves requests; replicas in it are tried first";
+
+        info[--mp] = new DriverPropertyInfo(TAG_BACKUP_DC, props.getProperty(TAG_BACKUP_DC));
+        info[mp].description = "Datacenter tried after every host in the primary datacenter";
+
+        info[--mp] = new DriverPropertyInfo(TAG_CONNECTION_RETRIES, props.getProperty(TAG_CONNECTION_RETRIES));
+        info[mp].description = "Times a failed request is retried; writes are only retried for idempotent statements";
+
+        info[--mp] = new DriverPropertyInfo(TAG_SPECULATIVE_DELAY, props.getProperty(TAG_SPECULATIVE_DELAY));
+        info[mp].description = "Milliseconds before an idempotent request is also sent to the next host";
+
+        info[--mp] = new DriverPropertyInfo(TAG_SPECULATIVE_PERCENTILE, props.getProperty(TAG_SPECULATIVE_PERCENTILE));
+        info[mp].description = "Latency percentile of a host after which an idempotent request is also sent to the next host; needs HdrHistogram";
+
+        info[--mp] = new DriverPropertyInfo(TAG_SPECULATIVE_EXECUTIONS, props.getProperty(TAG_SPECULATIVE_EXECUTIONS));
+        info[mp].description = "Most speculative executions started for one request";
+        info[mp].value = "1";
+
+        info[--mp] = new DriverPropertyInfo(TAG_VALIDATION_INTERVAL, props.getProperty(TAG_VALIDATION_INTERVAL));
+        info[mp].description = "Milliseconds the outcome of Connection.isValid is reused before the cluster is probed again";
+        info[mp].value = "" + CassandraConnection.DEFAULT_VALIDATION_INTERVAL_MILLIS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_PREFETCH_THRESHOLD, props.getProperty(TAG_PREFETCH_THRESHOLD));
+        info[mp].description = "Unread rows left in a page when the next page is requested in the background; 0 disables prefetch";
+        info[mp].value = "0";
+
+        info[--mp] = new DriverPropertyInfo(TAG_MAX_IN_FLIGHT, props.getProperty(TAG_MAX_IN_FLIGHT));
+        info[mp].description = "Requests one connection may have in flight at once before further requests wait; 0 is unbounded";
+        info[mp].value = "" + CassandraConnection.DEFAULT_MAX_IN_FLIGHT;
+
+        info[--mp] = new DriverPropertyInfo(TAG_BATCH_TYPE, props.getProperty(TAG_BATCH_TYPE));
+        info[mp].description = "Native batch type used by executeBatch";
+        info[mp].choices = new String[] {"unlogged", "logged", "counter"};
+        info[mp].value = "unlogged";
+
+        info[--mp] = new DriverPropertyInfo(TAG_MAX_BATCH_STATEMENTS, props.getProperty(TAG_MAX_BATCH_STATEMENTS));
+        info[mp].description = "Most statements sent in one native batch; larger JDBC batches are split";
+        info[mp].value = "" + CassandraConnection.DEFAULT_MAX_BATCH_STATEMENTS;
+
+        info[--mp] = new DriverPropertyInfo(TAG_MAX_BATCH_BYTES, props.getProperty(TAG_MAX_BATCH_BYTES));
+        info[mp].description = "Most bytes of statements and values sent in one native batch; larger JDBC batches are split";
+        info[mp].value = "" + CassandraConnection.DEFAULT_MAX_BATCH_BYTES;
+
+        info[--mp] = new DriverPropertyInfo(TAG_BATCH_MODE, props.getProperty(TAG_BATCH_MODE));
+        info[mp].description = "How executeBatch sends statements: in native batches, or pipelined as separate requests";
+        info[mp].choices = new String[] {"batch", "pipelined"};
+        info[mp].value = "batch";
+
+        info[--mp] = new DriverPropertyInfo(TAG_PREPARED_CACHE_SIZE, props.getProperty(TAG_PREPARED_CACHE_SIZE));
+        info[mp].description = "Prepared statements cached for all connections sharing a cluster; 0 disables the cache";
+        info[mp].value = "" + ClusterReference.DEFAULT_PREPARED_CACHE_SIZE;
+
         return info;
 
     }
@@ -0,0 +1,159 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.exceptions.CodecNotFoundException;
+
+import java.sql.ParameterMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+
+/**
+ * Parameter metadata of a prepared statement, read from the bind variables the server described when the query was
+ * prepared, so it is known before the statement is ever executed. SQL types are those of
+ * {@link CassandraValidatorType}, as reported for the same columns by the database metadata. Everything is worked
+ * out up front, so asking costs no allocation.
+ */
+class CassandraParameterMetaData implements ParameterMetaData
+{
+
+    private final CassandraValidatorType[] validators;
+
+    private final String[] typeNames;
+
+    private final String[] classNames;
+
+    CassandraParameterMetaData(ColumnDefinitions variables, CodecRegistry codecs)
+    {
+        int count = variables.size();
+        validators = new CassandraValidatorType[count];
+        typeNames = new String[count];
+        classNames = new String[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            DataType type = variables.getType(i);
+            validators[i] = CassandraValidatorType.fromValidator(type);
+            typeNames[i] = type.getName().toString();
+
+            try
+            {
+                classNames[i] = codecs.codecFor(type).getJavaType().getRawType().getName();
+            }
+            catch (CodecNotFoundException e)
+            {
+                // custom types without a registered codec are only ever bound as raw bytes
+                classNames[i] = Object.class.getName();
+            }
+        }
+    }
+
+    public int getParameterCount() throws SQLException
+    {
+        return validators.length;
+    }
+
+    /**
+     * Binding {@code null} is always allowed, it removes the value.
+     */
+    public int isNullable(int param) throws SQLException
+    {
+        checkIndex(param);
+        return parameterNullable;
+    }
+
+    public boolean isSigned(int param) throws SQLException
+    {
+        switch (getParameterType(param))
+        {
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    public int getPrecision(int param) throws SQLException
+    {
+        return validators[checkIndex(param)].getSqlWidth();
+    }
+
+    public int getScale(int param) throws SQLException
+    {
+        return (getParameterType(param) == Types.DOUBLE) ? 4 : 0;
+    }
+
+    public int getParameterType(int param) throws SQLException
+    {
+        return validators[checkIndex(param)].getSqlType();
+    }
+
+    /**
+     * The Cassandra type name, as for the columns of a result set.
+     */
+    public String getParameterTypeName(int param) throws SQLException
+    {
+        return typeNames[checkIndex(param)];
+    }
+
+    /**
+     * The Java class the native driver binds for the parameter.
+     */
+    public String getParameterClassName(int param) throws SQLException
+    {
+        return classNames[checkIndex(param)];
+    }
+
+    public int getParameterMode(int param) throws SQLException
+    {
+        checkIndex(param);
+        return parameterModeIn;
+    }
+
+    private int checkIndex(int param) throws SQLException
+    {
+        if ((param < 1) || (param > validators.length))
+        {
+            throw new SQLDataException(String.format(Utils.BAD_PARAMETER_INDEX, param, validators.length));
+        }
+        return param - 1;
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return false;
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException(String.format(Utils.NO_INTERFACE, iface.getSimpleName()));
+    }
+
+}
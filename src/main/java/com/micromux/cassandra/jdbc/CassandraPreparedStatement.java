@@ -20,25 +20,41 @@
 
 package com.micromux.cassandra.jdbc;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedId;
+import com.datastax.driver.core.ResultSetFuture;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.InputStream;
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.net.InetAddress;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-class CassandraPreparedStatement extends CassandraStatement implements PreparedStatement
+class CassandraPreparedStatement extends CassandraStatement implements CassandraPreparedStatementExtras
 {
     private static final Logger logger = Utils.getLogger();
 
+    /**
+     * Result columns the server described when the query was prepared; the native driver keeps them to itself.
+     */
+    private static final Field RESULT_COLUMNS = resultColumnsField();
+
     /**
      * Cassandra PreparedStatement - native implementation
      */
@@ -48,6 +64,28 @@ class CassandraPreparedStatement extends CassandraStatement implements PreparedS
 
     private BoundStatement boundStatement;
 
+    /**
+     * Key of the query in the prepared statement cache, used to look up its replacement after a schema change.
+     */
+    private String preparedKey;
+
+    /**
+     * Generation of the prepared statement cache the native statement is current for.
+     */
+    private long preparedGeneration;
+
+    /**
+     * Metadata of the native statement, built on first use and dropped when the statement is replaced.
+     */
+    private ResultSetMetaData resultSetMetaData;
+
+    private ParameterMetaData parameterMetaData;
+
+    /**
+     * Parameters queued by {@link #addBatch()}.
+     */
+    private final List<BoundStatement> boundBatch = new ArrayList<BoundStatement>();
+
     /**
      * Construct a prepared statment for Cassandra JDBC.
      * @param con   Connection to Cassandra
@@ -68,6 +106,8 @@ class CassandraPreparedStatement extends CassandraStatement implements PreparedS
 
         logger.log(Level.FINER, String.format("CassandraPreparedStatement::CQL:%s", this.cql));
 
+        preparedGeneration = con.getPreparedGeneration();
+        preparedKey = con.preparedKey(cql);
         preparedStatement = con.prepare(cql);
         boundStatement = new BoundStatement(preparedStatement);
 
@@ -91,7 +131,92 @@ class CassandraPreparedStatement extends CassandraStatement implements PreparedS
 
     public void addBatch() throws SQLException
     {
-        throw new SQLFeatureNotSupportedException(NOT_SUPPORTED);
+        checkNotClosed();
+        boundBatch.add(handOff());
+    }
+
+    @Override
+    public void addBatch(String query) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException(Utils.NO_BATCH);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException
+    {
+        super.clearBatch();
+        boundBatch.clear();
+    }
+
+    /**
+     * Execute the queued parameters. Unlogged and counter batches are grouped by partition: each group is sent as
+     * its own native batch, which token-aware routing delivers to a replica of that partition, and all groups are
+     * sent at once. This avoids the coordinator fanning a mixed batch out to every partition's replicas. Logged
+     * batches keep the order and atomicity of {@link CassandraStatement#executeBatch(List)}, which also sends
+     * pipelined batches.
+     * @throws BatchUpdateException  Some groups failed or could not be sent; their statements count as
+     *                               {@link #EXECUTE_FAILED}.
+     */
+    @Override
+    public int[] executeBatch() throws SQLException
+    {
+        checkNotClosed();
+
+        List<BoundStatement> queued = new ArrayList<BoundStatement>(boundBatch);
+        boundBatch.clear();
+
+        if (connection.pipelinedBatches || (getBatchType() == BatchStatement.Type.LOGGED)) {
+            return executeBatch(queued);
+        }
+
+        Cluster cluster = connection.getCluster();
+        Map<ByteBuffer, List<BoundStatement>> partitions = new LinkedHashMap<ByteBuffer, List<BoundStatement>>();
+        Map<ByteBuffer, List<Integer>> positions = new LinkedHashMap<ByteBuffer, List<Integer>>();
+        for (int i = 0; i < queued.size(); i++) {
+            // statements without a routing key are grouped together and sent to any coordinator
+            ByteBuffer routingKey = queued.get(i).getRoutingKey(
+                    cluster.getConfiguration().getProtocolOptions().getProtocolVersion(),
+                    cluster.getConfiguration().getCodecRegistry());
+
+            if (!partitions.containsKey(routingKey)) {
+                partitions.put(routingKey, new ArrayList<BoundStatement>());
+                positions.put(routingKey, new ArrayList<Integer>());
+            }
+            partitions.get(routingKey).add(queued.get(i));
+            positions.get(routingKey).add(i);
+        }
+
+        // send every group before waiting for any; the connection bounds how many are in flight at once
+        List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>();
+        List<List<Integer>> sent = new ArrayList<List<Integer>>();
+        SQLException unsent = null;
+        for (Map.Entry<ByteBuffer, List<BoundStatement>> partition : partitions.entrySet()) {
+            List<BoundStatement> statements = partition.getValue();
+            List<Integer> indexes = positions.get(partition.getKey());
+
+            int done = 0;
+            while (done < statements.size()) {
+                BatchStatement nativeBatch = new BatchStatement(getBatchType());
+                int end = fillBatch(nativeBatch, statements, done);
+
+                // a lone statement needs no batch around it
+                com.datastax.driver.core.Statement request = (nativeBatch.size() == 1) ? statements.get(done) : nativeBatch;
+                try {
+                    futures.add(connection.executeAsync(request, this));
+                } catch (SQLException e) {
+                    // the groups already sent are still waited for, the rest count as failed
+                    unsent = e;
+                    break;
+                }
+                sent.add(indexes.subList(done, end));
+
+                done = end;
+            }
+
+            if (unsent != null) break;
+        }
+
+        return awaitBatch(futures, sent, queued.size(), unsent);
     }
 
     public void setBlob(int parameterIndex, Blob value) throws SQLException {
@@ -115,10 +240,10 @@ class CassandraPreparedStatement extends CassandraStatement implements PreparedS
     {
         checkNotClosed();
 
-        currentResultSet = connection.execute(preparedStatement, boundStatement);
+        currentResultSet = connection.execute(preparedStatement, handOff(), this);
 
-        if ((currentResultSet != null) && (currentResultSet.wasApplied())) {
-            updateCount = currentResultSet.getAvailableWithoutFetching();  // TODO: can INSERT/UPDATE be supported?
+        if (currentResultSet != null) {
+            updateCount = updateCount(cql, currentResultSet);
         }
 
         return (currentResultSet != null);
@@ -135,25 +260,143 @@ class CassandraPreparedStatement extends CassandraStatement implements PreparedS
 
     }
 
-    public int executeUpdate() throws SQLException
+    public ListenableFuture<ResultSet> executeQueryAsync() throws SQLException
     {
         checkNotClosed();
 
-        if (execute()) {
-            return updateCount;
-        } else {
-            throw new SQLNonTransientException(Utils.NO_UPDATE_COUNT);
+        return resultSetOf(connection.executeAsync(preparedStatement, handOff(), this));
+    }
+
+    public ListenableFuture<Integer> executeUpdateAsync() throws SQLException
+    {
+        checkNotClosed();
+
+        return Futures.transform(translateTimeouts(connection.executeAsync(preparedStatement, handOff(), this)),
+                new AsyncFunction<com.datastax.driver.core.ResultSet, Integer>()
+                {
+                    public ListenableFuture<Integer> apply(com.datastax.driver.core.ResultSet rst) throws Exception
+                    {
+                        return Futures.immediateFuture(updateCount(cql, rst));
+                    }
+                });
+    }
+
+    /**
+     * Give the bound statement to an execution and carry on binding a copy of it, so that binding the next
+     * parameters cannot change a request still in flight or the pages fetched later for its result.
+     */
+    private BoundStatement handOff() throws SQLException
+    {
+        refresh();
+
+        BoundStatement executed = boundStatement;
+
+        boundStatement = new BoundStatement(preparedStatement);
+        for (int i = 0; i < preparedStatement.getVariables().size(); i++) {
+            if (executed.isSet(i)) boundStatement.setBytesUnsafe(i, executed.getBytesUnsafe(i));
         }
+
+        return executed;
     }
 
+    /**
+     * Switch to the native statement prepared again after a schema change, carrying the parameters bound so far
+     * over, so that results are never read with outdated column definitions. Costs one volatile read when nothing
+     * changed, and never waits for the server. A statement whose query is no longer cached keeps the native
+     * statement it has.
+     * @throws SQLException  The new statement takes a different number of parameters; they have been cleared and
+     *                       must be bound again.
+     */
+    private void refresh() throws SQLException
+    {
+        long generation = connection.getPreparedGeneration();
+        if (generation == preparedGeneration) return;
+
+        com.datastax.driver.core.PreparedStatement latest = connection.latest(preparedKey);
+        int count = preparedStatement.getVariables().size();
+
+        if ((latest != null) && (latest != preparedStatement)) {
+            BoundStatement rebound = new BoundStatement(latest);
+
+            if (latest.getVariables().size() == count) {
+                for (int i = 0; i < count; i++) {
+                    if (boundStatement.isSet(i)) rebound.setBytesUnsafe(i, boundStatement.getBytesUnsafe(i));
+                }
+            }
+
+            preparedStatement = latest;
+            boundStatement = rebound;
+            resultSetMetaData = null;
+            parameterMetaData = null;
+        }
+
+        preparedGeneration = generation;
+
+        if (preparedStatement.getVariables().size() != count) {
+            throw new SQLNonTransientException(String.format(Utils.PARAMETERS_CHANGED, count, preparedStatement.getVariables().size(), cql));
+        }
+    }
+
+    public int executeUpdate() throws SQLException
+    {
+        checkNotClosed();
+
+        updateCount = updateCount(cql, connection.execute(preparedStatement, handOff(), this));
+        return updateCount;
+    }
+
+    /**
+     * Describe the columns of the result without executing the statement, as the server described them when the
+     * query was prepared.
+     * @return Result set metadata; {@code null} for statements that return no rows.
+     * @throws SQLException  The statement is closed.
+     */
     public ResultSetMetaData getMetaData() throws SQLException
     {
-        throw new SQLFeatureNotSupportedException(NOT_SUPPORTED);
+        checkNotClosed();
+        refresh();
+
+        if (resultSetMetaData == null) {
+            ColumnDefinitions columns = resultColumns(preparedStatement);
+            if ((columns == null) || (columns.size() == 0)) return null;
+
+            resultSetMetaData = new CassandraResultSet.CResultSetMetaData(columns);
+        }
+
+        return resultSetMetaData;
     }
 
     public ParameterMetaData getParameterMetaData() throws SQLException
     {
-        throw new SQLFeatureNotSupportedException(NOT_SUPPORTED);
+        checkNotClosed();
+        refresh();
+
+        if (parameterMetaData == null) {
+            parameterMetaData = new CassandraParameterMetaData(preparedStatement.getVariables(), preparedStatement.getCodecRegistry());
+        }
+
+        return parameterMetaData;
+    }
+
+    private static ColumnDefinitions resultColumns(com.datastax.driver.core.PreparedStatement prepared) {
+        if (RESULT_COLUMNS == null) return null;
+
+        try {
+            return (ColumnDefinitions) RESULT_COLUMNS.get(prepared.getPreparedId());
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field resultColumnsField() {
+        try {
+            Field field = PreparedId.class.getDeclaredField("resultSetMetadata");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Result columns of prepared statements are not available from the native driver", e);
+            return null;
+        }
     }
 
     public void setBigDecimal(int parameterIndex, BigDecimal decimal) throws SQLException
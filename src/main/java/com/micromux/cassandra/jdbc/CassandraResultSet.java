@@ -23,7 +23,9 @@ package com.micromux.cassandra.jdbc;
 import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.exceptions.DriverException;
 import com.google.common.reflect.TypeToken;
 import org.apache.commons.lang3.StringUtils;
 
@@ -37,8 +39,10 @@ import java.util.*;
 
 import static com.micromux.cassandra.jdbc.Utils.BAD_FETCH_DIR;
 import static com.micromux.cassandra.jdbc.Utils.BAD_FETCH_SIZE;
+import static com.micromux.cassandra.jdbc.Utils.BAD_PREFETCH;
 import static com.micromux.cassandra.jdbc.Utils.FORWARD_ONLY;
 import static com.micromux.cassandra.jdbc.Utils.NO_INTERFACE;
+import static com.micromux.cassandra.jdbc.Utils.READ_TIMED_OUT;
 
 /**
  * <p>
@@ -122,12 +126,17 @@ import static com.micromux.cassandra.jdbc.Utils.NO_INTERFACE;
  * </tr>
  * </table>
  */
-class CassandraResultSet extends AbstractResultSet implements ResultSet {
+class CassandraResultSet extends AbstractResultSet implements CassandraResultSetExtras {
 
     public static final int DEFAULT_TYPE = ResultSet.TYPE_FORWARD_ONLY;
     public static final int DEFAULT_CONCURRENCY = ResultSet.CONCUR_READ_ONLY;
     public static final int DEFAULT_HOLDABILITY = ResultSet.HOLD_CURSORS_OVER_COMMIT;
 
+    /**
+     * The result returned by the native driver, which fetches one page of rows at a time as they are read.
+     */
+    private com.datastax.driver.core.ResultSet resultSet;
+
     /**
      * The rows iterator.
      */
@@ -138,6 +147,27 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
      */
     private Row row;
 
+    /**
+     * The first row, taken from the iterator before {@link #next()} so that it can be read straight away.
+     */
+    private Row firstRow;
+
+    /**
+     * Rows of the page being read that are still to be taken from the iterator.
+     */
+    private int pageRemaining;
+
+    private int prefetchThreshold;
+
+    private long prefetchHits;
+
+    private long prefetchMisses;
+
+    /**
+     * Paging state when the result set was closed, which is after its pages have been let go.
+     */
+    private String closedPagingState;
+
     private int rowNumber = 0;
 
     private final CResultSetMetaData meta;
@@ -150,6 +180,16 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
 
     private int fetchSize;
 
+    /**
+     * Rows the result set returns at most, or zero for all of them; see {@link Statement#setMaxRows(int)}.
+     */
+    private int maxRows;
+
+    /**
+     * Rows taken from the iterator so far.
+     */
+    private int rowsTaken;
+
     private boolean wasNull;
 
     private boolean closed;
@@ -168,18 +208,33 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
      * Instantiates a new cassandra result set from a CqlResult.
      */
     CassandraResultSet(CassandraStatement statement, com.datastax.driver.core.ResultSet resultSet) throws SQLException {
+        this(statement, resultSet, statement.getFetchSize(), statement.getMaxRows());
+    }
+
+    /**
+     * Instantiates a result set with the fetch size and maximum rows the statement had when the request was sent,
+     * for results that arrive after the statement may have changed.
+     */
+    CassandraResultSet(CassandraStatement statement, com.datastax.driver.core.ResultSet resultSet, int fetchSize, int maxRows) throws SQLException {
         this.statement = statement;
         this.resultSetType = statement.getResultSetType();
         this.fetchDirection = statement.getFetchDirection();
-        this.fetchSize = statement.getFetchSize();
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
         this.columnDefinitions = resultSet.getColumnDefinitions();
 
-        // assign the first row for JDBC to read
-        List<Row> rowList = resultSet.all();
-
-        if ((rowList != null) && !rowList.isEmpty()) {
-            row = rowList.get(0);
-            rowsIterator = rowList.iterator();
+        // rows are read from the page already received; later pages are only requested as next() reaches them,
+        // so no more than a page of rows is held at once
+        this.resultSet = resultSet;
+        this.rowsIterator = resultSet.iterator();
+        this.pageRemaining = resultSet.getAvailableWithoutFetching();
+        this.prefetchThreshold = statement.connection.prefetchThreshold;
+
+        // assign the first row for JDBC to read when it has arrived; results may be built on a driver thread, which
+        // must never wait for a page
+        if ((pageRemaining > 0) && hasNextRow()) {
+            firstRow = takeRow();
+            row = firstRow;
         }
 
         meta = new CResultSetMetaData(resultSet.getColumnDefinitions());
@@ -222,7 +277,13 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
     }
 
     public void close() throws SQLException {
-        // not implemented
+        // let go of the page being read; the remaining pages are never requested
+        closedPagingState = getPagingState();
+        closed = true;
+        resultSet = null;
+        rowsIterator = null;
+        firstRow = null;
+        row = null;
     }
 
     public int findColumn(String name) throws SQLException {
@@ -576,6 +637,13 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
         return getObject(findColumn(columnLabel), type);
     }
 
+    /**
+     * Rows already received from the cluster that have not been read yet; never more than about one page.
+     */
+    int getAvailableWithoutFetching() {
+        return (resultSet == null) ? 0 : resultSet.getAvailableWithoutFetching();
+    }
+
     public int getRow() throws SQLException {
         return rowNumber;
     }
@@ -887,12 +955,11 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
     }
 
     public boolean isLast() throws SQLException {
-        return !rowsIterator.hasNext();
+        return !hasNextRow();
     }
 
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        // TODO: should this be implemented?
-        return false;
+        return iface.isInstance(this);
     }
 
     // Navigation between rows within the returned set of rows
@@ -909,8 +976,13 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
      * @throws SQLException Fatal error communicating with the resultset.
      */
     public synchronized boolean next() throws SQLException {
-        if ((rowsIterator != null) && rowsIterator.hasNext()) {
-            this.row = rowsIterator.next();
+        if (hasNextRow()) {
+            if (firstRow != null) {
+                this.row = firstRow;
+                firstRow = null;
+            } else {
+                this.row = takeRow();
+            }
             rowNumber++;
             return true;
         } else {
@@ -919,6 +991,89 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
         }
     }
 
+    /**
+     * Determine if another row can be read, waiting for the next page of the result if the current one has been read.
+     *
+     * @return Result is {@code true} if there is another row or {@code false} once the last page has been read.
+     * @throws SQLException The next page could not be fetched in time.
+     */
+    private boolean hasNextRow() throws SQLException {
+        if (firstRow != null) return true;
+        if (rowsIterator == null) return false;
+
+        // past the maximum rows nothing more is read, so no further page is ever requested
+        if ((maxRows > 0) && (rowsTaken >= maxRows)) return false;
+
+        try {
+            // crossing into the next page; count whether it was already there or has to be waited for
+            if (pageRemaining == 0) {
+                int available = resultSet.getAvailableWithoutFetching();
+                if (available > 0) {
+                    prefetchHits++;
+                } else if (!resultSet.isFullyFetched()) {
+                    prefetchMisses++;
+                }
+            }
+
+            boolean hasNext = rowsIterator.hasNext();
+
+            if (pageRemaining == 0) {
+                pageRemaining = resultSet.getAvailableWithoutFetching();
+            }
+
+            return hasNext;
+        } catch (DriverException e) {
+            if (CassandraStatement.isTimeout(e)) {
+                throw new SQLTimeoutException(READ_TIMED_OUT, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Take the next row from the iterator, and request the page after this one in the background when only
+     * {@link #prefetchThreshold} rows of it are left and nothing beyond it has been received or requested yet.
+     */
+    private Row takeRow() {
+        Row next = rowsIterator.next();
+        pageRemaining--;
+        rowsTaken++;
+
+        // the next page is only worth requesting if the maximum rows reach beyond this one
+        boolean wanted = (maxRows == 0) || (rowsTaken + pageRemaining < maxRows);
+
+        if (wanted && (pageRemaining < prefetchThreshold) && !resultSet.isFullyFetched()
+                && (resultSet.getAvailableWithoutFetching() == pageRemaining)) {
+            resultSet.fetchMoreResults();
+        }
+
+        return next;
+    }
+
+    public void setPrefetchThreshold(int rows) throws SQLException {
+        if (rows < 0) throw new SQLNonTransientException(String.format(BAD_PREFETCH, rows));
+        prefetchThreshold = rows;
+    }
+
+    public int getPrefetchThreshold() throws SQLException {
+        return prefetchThreshold;
+    }
+
+    public long getPrefetchHits() throws SQLException {
+        return prefetchHits;
+    }
+
+    public long getPrefetchMisses() throws SQLException {
+        return prefetchMisses;
+    }
+
+    public String getPagingState() throws SQLException {
+        if (resultSet == null) return closedPagingState;
+
+        PagingState pagingState = resultSet.getExecutionInfo().getPagingState();
+        return (pagingState == null) ? null : pagingState.toString();
+    }
+
     public boolean previous() throws SQLException {
         throw new SQLFeatureNotSupportedException(NOT_SUPPORTED);
     }
@@ -939,10 +1094,15 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
     public void setFetchSize(int size) throws SQLException {
         if (size < 0) throw new SQLException(String.format(BAD_FETCH_SIZE, size));
         fetchSize = size;
+
+        // pages not yet requested are fetched with the statement of the result, so they take the new size
+        if (resultSet != null) {
+            resultSet.getExecutionInfo().getStatement().setFetchSize(CassandraStatement.pageSize(size, maxRows));
+        }
     }
 
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        // TODO: should this be implemented?
+        if (iface.isInstance(this)) return iface.cast(this);
         throw new SQLFeatureNotSupportedException(String.format(NO_INTERFACE, iface.getSimpleName()));
     }
 
@@ -952,9 +1112,10 @@ class CassandraResultSet extends AbstractResultSet implements ResultSet {
 
     /**
      * RSMD implementation. The metadata returned refers to the column
-     * values, not the column names.
+     * values, not the column names. Prepared statements describe their results
+     * with it too, before they are executed.
      */
-    class CResultSetMetaData implements ResultSetMetaData {
+    static class CResultSetMetaData implements ResultSetMetaData {
 
         private ColumnDefinitions columnDefinitions;
 
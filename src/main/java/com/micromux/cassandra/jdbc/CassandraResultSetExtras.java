@@ -0,0 +1,54 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public interface CassandraResultSetExtras extends ResultSet
+{
+    /**
+     * Request the next page in the background once fewer than this many rows of the current page are left unread,
+     * so that reading does not stop for a round trip at each page. Zero, the default unless the connection sets
+     * {@code prefetchThreshold}, only requests a page when it is needed.
+     */
+    void setPrefetchThreshold(int rows) throws SQLException;
+
+    int getPrefetchThreshold() throws SQLException;
+
+    /**
+     * Pages whose rows had already arrived when reading reached them.
+     */
+    long getPrefetchHits() throws SQLException;
+
+    /**
+     * Pages that reading had to wait for.
+     */
+    long getPrefetchMisses() throws SQLException;
+
+    /**
+     * Position after the last page received, which {@link CassandraStatementExtras#setPagingState(String)} accepts to
+     * continue the same query from the following page; {@code null} once the last page has been received. Rows
+     * received but not read yet are not covered, so read the whole page, and leave prefetch off, before handing the
+     * position on.
+     */
+    String getPagingState() throws SQLException;
+}
@@ -20,9 +20,32 @@
  */
 package com.micromux.cassandra.jdbc;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
-
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.PagingStateException;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 /**
  * Cassandra statement: implementation class for {@link PreparedStatement}.
@@ -30,6 +53,11 @@ import java.sql.*;
 class CassandraStatement extends AbstractStatement implements CassandraStatementExtras, Comparable<Object>, Statement
 {
 
+    /**
+     * Statements that change rows, and so have an update count of one row when applied.
+     */
+    private static final Pattern WRITE = Pattern.compile("^\\s*(INSERT|UPDATE|DELETE|BEGIN)\\s", Pattern.CASE_INSENSITIVE);
+
     /**
      * The connection.
      */
@@ -42,7 +70,10 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
 
     private int fetchDirection = ResultSet.FETCH_FORWARD;
 
-    private int fetchSize = 0;
+    /**
+     * Fetch size set on the statement; {@code null} leaves it to the execution profile.
+     */
+    private Integer fetchSize;
 
     private int maxFieldSize = 0;
 
@@ -58,10 +89,62 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
 
     int updateCount = -1;
 
+    /**
+     * Outcome of the last update, see {@link #wasApplied()}; written by the callbacks of asynchronous updates.
+     */
+    private volatile boolean applied = true;
+
     private boolean escapeProcessing = true;
 
+    /**
+     * Consistency level set on the statement; {@code null} leaves it to the execution profile or the connection.
+     */
     private ConsistencyLevel consistencyLevel;
 
+    /**
+     * Idempotence set on the statement; {@code null} leaves it to the execution profile.
+     */
+    private Boolean idempotent;
+
+    /**
+     * Profile the statement runs with, see {@link #setExecutionProfile(String)}. Its settings apply underneath the
+     * ones made on the statement itself, and are resolved each time the statement is executed.
+     */
+    private ExecutionProfile executionProfile;
+
+    /**
+     * Position to resume the next execution from, see {@link #setPagingState(String)}.
+     */
+    private PagingState pagingState;
+
+    /**
+     * Statements queued by {@link #addBatch(String)}.
+     */
+    private final List<String> batch = new ArrayList<String>();
+
+    private BatchStatement.Type batchType;
+
+    /**
+     * Query timeout in seconds; zero waits as long as the socket read timeout allows.
+     */
+    private int queryTimeout = 0;
+
+    /**
+     * The request currently being executed, so that {@link #cancel()} can abort it from another thread.
+     */
+    private volatile ResultSetFuture inFlight;
+
+    /**
+     * Set while this statement waits for an in-flight permit of its connection, and whether {@link #cancel()} ended it.
+     */
+    private volatile boolean awaitingPermit;
+    private volatile boolean permitCancelled;
+
+    /**
+     * Longest single wait for a permit, so that a cancel is noticed promptly.
+     */
+    private static final long PERMIT_POLL_MILLIS = 50;
+
     CassandraStatement(CassandraConnection con) throws SQLException
     {
         this(con, null, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT);
@@ -82,7 +165,7 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     {
         this.connection = con;
         this.cql = cql;
-        this.consistencyLevel = con.defaultConsistencyLevel;
+        this.batchType = con.defaultBatchType;
 
         if (!(resultSetType == ResultSet.TYPE_FORWARD_ONLY
               || resultSetType == ResultSet.TYPE_SCROLL_INSENSITIVE
@@ -100,10 +183,10 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
         this.resultSetHoldability = resultSetHoldability;
     }
 
-    public void addBatch(String arg0) throws SQLException
+    public void addBatch(String query) throws SQLException
     {
         checkNotClosed();
-        throw new SQLFeatureNotSupportedException(Utils.NO_BATCH);
+        batch.add(query);
     }
 
     /**
@@ -121,7 +204,7 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     public void clearBatch() throws SQLException
     {
         checkNotClosed();
-        throw new SQLFeatureNotSupportedException(Utils.NO_BATCH);
+        batch.clear();
     }
 
     @Override
@@ -162,19 +245,171 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     @Override
     public int[] executeBatch() throws SQLException
     {
-        throw new SQLFeatureNotSupportedException(Utils.NO_BATCH);
+        checkNotClosed();
+
+        List<com.datastax.driver.core.Statement> queued = new ArrayList<com.datastax.driver.core.Statement>(batch.size());
+        for (String query : batch) {
+            queued.add(connection.batchEntry(query));
+        }
+        batch.clear();
+
+        return executeBatch(queued);
+    }
+
+    /**
+     * Execute queued statements in native batches of the statement's batch type, one after another, starting a new
+     * batch whenever the next statement would take the current one past the connection's
+     * {@link Utils#TAG_MAX_BATCH_STATEMENTS} or {@link Utils#TAG_MAX_BATCH_BYTES}. Cassandra does not report rows
+     * affected, so each statement counts as {@link #SUCCESS_NO_INFO}.
+     * @throws BatchUpdateException  A batch failed; the counts cover the statements of the batches before it.
+     */
+    final int[] executeBatch(List<? extends com.datastax.driver.core.Statement> queued) throws SQLException
+    {
+        if (connection.pipelinedBatches) {
+            return executePipelined(queued);
+        }
+
+        int[] counts = new int[queued.size()];
+        int done = 0;
+
+        try {
+            while (done < queued.size()) {
+                BatchStatement nativeBatch = new BatchStatement(batchType);
+                int end = fillBatch(nativeBatch, queued, done);
+
+                if (!connection.execute(nativeBatch, this).wasApplied()) {
+                    throw new SQLNonTransientException(Utils.BATCH_NOT_APPLIED);
+                }
+
+                Arrays.fill(counts, done, end, SUCCESS_NO_INFO);
+                done = end;
+            }
+        } catch (SQLException e) {
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(counts, done), e);
+        } catch (DriverException e) {
+            throw new BatchUpdateException(e.getMessage(), Arrays.copyOf(counts, done), e);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Send each queued statement as a request of its own without waiting in between, so that as many are in flight
+     * as the connection's {@link Utils#TAG_MAX_IN_FLIGHT} allows. Nothing is applied atomically.
+     * @throws BatchUpdateException  Some statements failed or could not be sent; they count as
+     *                               {@link #EXECUTE_FAILED}.
+     */
+    private int[] executePipelined(List<? extends com.datastax.driver.core.Statement> queued) throws SQLException
+    {
+        List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(queued.size());
+        List<List<Integer>> positions = new ArrayList<List<Integer>>(queued.size());
+        SQLException unsent = null;
+
+        for (int i = 0; i < queued.size(); i++) {
+            try {
+                futures.add(connection.executeAsync(queued.get(i), this));
+            } catch (SQLException e) {
+                // no request in flight freed a permit in time, or the wait was cancelled; the rest are not sent
+                unsent = e;
+                break;
+            }
+            positions.add(Collections.singletonList(i));
+        }
+
+        return awaitBatch(futures, positions, queued.size(), unsent);
+    }
+
+    /**
+     * Wait for every request sent for a batch, including those sent before a request could not be.
+     * @param positions  Positions in the batch of the statements that each request carried.
+     * @param unsent     Why the statements of the batch that no request carried were not sent; {@code null} when
+     *                   every statement was sent.
+     * @throws BatchUpdateException  Some requests failed or were not sent; their statements count as
+     *                               {@link #EXECUTE_FAILED} and the others as {@link #SUCCESS_NO_INFO}.
+     */
+    final int[] awaitBatch(List<ResultSetFuture> futures, List<List<Integer>> positions, int size, SQLException unsent) throws SQLException
+    {
+        int[] counts = new int[size];
+        Arrays.fill(counts, EXECUTE_FAILED);
+        Exception failure = unsent;
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (!await(futures.get(i)).wasApplied()) {
+                    throw new SQLNonTransientException(Utils.BATCH_NOT_APPLIED);
+                }
+                for (int index : positions.get(i)) counts[index] = SUCCESS_NO_INFO;
+            } catch (SQLException e) {
+                failure = (failure == null) ? e : failure;
+            } catch (DriverException e) {
+                failure = (failure == null) ? e : failure;
+            }
+        }
+
+        if (failure instanceof SQLException) {
+            SQLException e = (SQLException) failure;
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), counts, e);
+        } else if (failure != null) {
+            throw new BatchUpdateException(failure.getMessage(), counts, failure);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Add statements to a native batch, starting at {@code from}, until the next one would take it past the
+     * connection's limits; the batch always takes at least one statement.
+     * @return Index of the first statement that was not added.
+     */
+    final int fillBatch(BatchStatement nativeBatch, List<? extends com.datastax.driver.core.Statement> statements, int from)
+    {
+        int bytes = 0;
+        int end = from;
+
+        while ((end < statements.size()) && (nativeBatch.size() < connection.maxBatchStatements)) {
+            int size = serializedSize(statements.get(end));
+            if ((nativeBatch.size() > 0) && (bytes + size > connection.maxBatchBytes)) break;
+
+            nativeBatch.add(statements.get(end++));
+            bytes += size;
+        }
+
+        return end;
+    }
+
+    /**
+     * Approximate bytes a statement adds to a native batch: its query text, or the id of a prepared statement,
+     * and its bound values.
+     */
+    static int serializedSize(com.datastax.driver.core.Statement statement)
+    {
+        if (statement instanceof com.datastax.driver.core.SimpleStatement) {
+            return ((com.datastax.driver.core.SimpleStatement) statement).getQueryString().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        if (statement instanceof BoundStatement) {
+            BoundStatement bound = (BoundStatement) statement;
+            int size = 16; // the prepared statement id is an MD5 digest
+            for (int i = 0; i < bound.preparedStatement().getVariables().size(); i++) {
+                ByteBuffer value = bound.isSet(i) ? bound.getBytesUnsafe(i) : null;
+                size += 4 + ((value == null) ? 0 : value.remaining());
+            }
+            return size;
+        }
+
+        return 0;
     }
 
     @Override
     public ResultSet executeQuery(String query) throws SQLException
     {
-        com.datastax.driver.core.ResultSet rst = connection.execute(query, consistencyLevel);
+        com.datastax.driver.core.ResultSet rst = connection.execute(query, this);
 
         if (null == rst) {
             throw new SQLNonTransientException(Utils.NO_RESULTSET);
         }
 
-        currentResultSet = new CassandraResultSet(new CassandraStatement(connection, query), rst);
+        currentResultSet = new CassandraResultSet(this, rst);
         return currentResultSet;
 
     }
@@ -184,14 +419,84 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     {
         checkNotClosed();
 
-        com.datastax.driver.core.ResultSet rst = connection.execute(query, connection.defaultConsistencyLevel);
+        return updateCount(query, connection.execute(query, this));
 
-        if ((null == rst) || !rst.wasApplied()) {
+    }
+
+    /**
+     * Update count of an executed statement without reading its rows: 1 for a write that was applied and 0 for
+     * anything else. Only the {@code [applied]} column of a lightweight transaction's single row is looked at.
+     */
+    final int updateCount(String query, com.datastax.driver.core.ResultSet rst) throws SQLException
+    {
+        if (null == rst) {
             throw new SQLNonTransientException(Utils.NO_UPDATE_COUNT);
         }
 
-        return rst.all().size();
+        applied = rst.wasApplied();
+        return (applied && WRITE.matcher(query).find()) ? 1 : 0;
+    }
+
+    @Override
+    public ListenableFuture<ResultSet> executeQueryAsync(String query) throws SQLException
+    {
+        checkNotClosed();
 
+        return resultSetOf(connection.executeAsync(query, this));
+    }
+
+    @Override
+    public ListenableFuture<Integer> executeUpdateAsync(final String query) throws SQLException
+    {
+        checkNotClosed();
+
+        return Futures.transform(translateTimeouts(connection.executeAsync(query, this)),
+                new AsyncFunction<com.datastax.driver.core.ResultSet, Integer>()
+                {
+                    public ListenableFuture<Integer> apply(com.datastax.driver.core.ResultSet rst) throws Exception
+                    {
+                        return Futures.immediateFuture(updateCount(query, rst));
+                    }
+                });
+    }
+
+    /**
+     * The JDBC result set of a request sent without waiting. It reads with the fetch size and maximum rows the
+     * statement has now, when the request has just been sent, not those it has when the result arrives.
+     */
+    final ListenableFuture<ResultSet> resultSetOf(ResultSetFuture future) throws SQLException
+    {
+        final int sentFetchSize = getFetchSize();
+        final int sentMaxRows = getMaxRows();
+
+        return Futures.transform(translateTimeouts(future), new AsyncFunction<com.datastax.driver.core.ResultSet, ResultSet>()
+        {
+            public ListenableFuture<ResultSet> apply(com.datastax.driver.core.ResultSet rst) throws Exception
+            {
+                return Futures.<ResultSet>immediateFuture(new CassandraResultSet(CassandraStatement.this, rst, sentFetchSize, sentMaxRows));
+            }
+        });
+    }
+
+    /**
+     * Report a request sent without waiting that timed out on every host with {@link SQLTimeoutException}, as
+     * {@link #await(ResultSetFuture)} does for requests that are waited for.
+     */
+    static ListenableFuture<com.datastax.driver.core.ResultSet> translateTimeouts(ResultSetFuture future)
+    {
+        return Futures.withFallback(future, new FutureFallback<com.datastax.driver.core.ResultSet>()
+        {
+            public ListenableFuture<com.datastax.driver.core.ResultSet> create(Throwable t) throws Exception
+            {
+                if ((t instanceof DriverException) && isTimeout((DriverException) t)) {
+                    throw new SQLTimeoutException(Utils.READ_TIMED_OUT, t);
+                }
+                if (t instanceof Error) {
+                    throw (Error) t;
+                }
+                throw (Exception) t;
+            }
+        });
     }
 
     @Override
@@ -223,7 +528,7 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     public int getFetchSize() throws SQLException
     {
         checkNotClosed();
-        return fetchSize;
+        return resolvedFetchSize();
     }
 
     @Override
@@ -274,8 +579,8 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     @Override
     public int getQueryTimeout() throws SQLException
     {
-        // the Cassandra implementation does not support timeouts on queries
-        return 0;
+        checkNotClosed();
+        return queryTimeout;
     }
 
     @Override
@@ -383,10 +688,11 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     }
 
     @Override
-    public void setMaxRows(int arg0) throws SQLException
+    public void setMaxRows(int max) throws SQLException
     {
         checkNotClosed();
-        // silently ignore this setting. always use default 0 (unlimited)
+        if (max < 0) throw new SQLNonTransientException(String.format(Utils.BAD_MAX_ROWS, max));
+        maxRows = max;
     }
 
     @Override
@@ -397,10 +703,30 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     }
 
     @Override
-    public void setQueryTimeout(int arg0) throws SQLException
+    public void setQueryTimeout(int seconds) throws SQLException
+    {
+        checkNotClosed();
+        if (seconds < 0) throw new SQLNonTransientException(Utils.BAD_TIMEOUT);
+        this.queryTimeout = seconds;
+    }
+
+    /**
+     * Abort the request in flight, if any, or the wait to send it; the thread waiting on it receives a
+     * {@link SQLTimeoutException}.
+     */
+    @Override
+    public void cancel() throws SQLException
     {
         checkNotClosed();
-        // silently ignore any attempt to set this away from the current default (0)
+
+        if (awaitingPermit) {
+            permitCancelled = true;
+        }
+
+        ResultSetFuture future = inFlight;
+        if (future != null) {
+            future.cancel(true);
+        }
     }
 
     @Override
@@ -413,7 +739,7 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
     @Override
     public ConsistencyLevel getConsistencyLevel()
     {
-        return consistencyLevel;
+        return resolvedConsistencyLevel();
     }
 
     @Override
@@ -422,6 +748,237 @@ class CassandraStatement extends AbstractStatement implements CassandraStatement
         this.consistencyLevel = consistencyLevel;
     }
 
+    @Override
+    public boolean wasApplied() throws SQLException
+    {
+        checkNotClosed();
+        return applied;
+    }
+
+    @Override
+    public BatchStatement.Type getBatchType()
+    {
+        return batchType;
+    }
+
+    @Override
+    public void setBatchType(BatchStatement.Type batchType)
+    {
+        this.batchType = batchType;
+    }
+
+    @Override
+    public boolean isIdempotent()
+    {
+        return resolvedIdempotent();
+    }
+
+    @Override
+    public void setIdempotent(boolean idempotent)
+    {
+        this.idempotent = idempotent;
+    }
+
+    @Override
+    public void setExecutionProfile(String name) throws SQLException
+    {
+        checkNotClosed();
+
+        executionProfile = (name == null) ? null : connection.getExecutionProfile(name);
+    }
+
+    @Override
+    public String getExecutionProfile()
+    {
+        return (executionProfile == null) ? null : executionProfile.getName();
+    }
+
+    @Override
+    public void setPagingState(String pagingState) throws SQLException
+    {
+        checkNotClosed();
+
+        if (pagingState == null) {
+            this.pagingState = null;
+            return;
+        }
+
+        try {
+            this.pagingState = PagingState.fromString(pagingState);
+        } catch (PagingStateException e) {
+            throw new SQLNonTransientException(String.format(Utils.BAD_PAGING_STATE, pagingState), e);
+        } catch (IllegalArgumentException e) {
+            throw new SQLNonTransientException(String.format(Utils.BAD_PAGING_STATE, pagingState), e);
+        }
+    }
+
+    /**
+     * Apply the options of this statement to the native statement that is about to be executed on its behalf.
+     */
+    com.datastax.driver.core.Statement configure(com.datastax.driver.core.Statement statement) throws SQLException
+    {
+        statement.setConsistencyLevel(resolvedConsistencyLevel());
+        statement.setIdempotent(resolvedIdempotent());
+
+        // rows are paged to the client fetchSize at a time; zero leaves the page size to the cluster default. No page
+        // needs to be larger than the rows the result set will return
+        statement.setFetchSize(pageSize(resolvedFetchSize(), maxRows));
+
+        if (executionProfile != null) {
+            executionProfile.configure(statement);
+        }
+
+        // the read timeout of the native statement also bounds every page fetched for it
+        if (queryTimeout > 0) {
+            statement.setReadTimeoutMillis((int) Math.min(TimeUnit.SECONDS.toMillis(queryTimeout), Integer.MAX_VALUE));
+        }
+
+        // a resume position is only good for the execution it was set for
+        if (pagingState != null) {
+            PagingState resume = pagingState;
+            pagingState = null;
+            try {
+                statement.setPagingState(resume);
+            } catch (PagingStateException e) {
+                throw new SQLNonTransientException(Utils.PAGING_STATE_MISMATCH, e);
+            }
+        }
+
+        return statement;
+    }
+
+    private int resolvedFetchSize()
+    {
+        if (fetchSize != null) return fetchSize;
+        if ((executionProfile != null) && (executionProfile.getFetchSize() != null)) return executionProfile.getFetchSize();
+        return 0;
+    }
+
+    private ConsistencyLevel resolvedConsistencyLevel()
+    {
+        if (consistencyLevel != null) return consistencyLevel;
+        if ((executionProfile != null) && (executionProfile.getConsistencyLevel() != null)) return executionProfile.getConsistencyLevel();
+        return (connection == null) ? null : connection.defaultConsistencyLevel;
+    }
+
+    private boolean resolvedIdempotent()
+    {
+        if (idempotent != null) return idempotent;
+        if ((executionProfile != null) && (executionProfile.getIdempotent() != null)) return executionProfile.getIdempotent();
+        return false;
+    }
+
+    /**
+     * Return the settings a caller may have changed to those of a new statement, so that a pooled statement handed
+     * out again carries nothing over from its last user.
+     */
+    void resetSettings()
+    {
+        executionProfile = null;
+        consistencyLevel = null;
+        idempotent = null;
+        fetchSize = null;
+        maxRows = 0;
+        queryTimeout = 0;
+        batchType = connection.defaultBatchType;
+    }
+
+    /**
+     * @return The page size to request for a fetch size, capped at the maximum rows when there is one.
+     */
+    static int pageSize(int fetchSize, int maxRows)
+    {
+        if (maxRows > 0) {
+            return (fetchSize > 0) ? Math.min(fetchSize, maxRows) : maxRows;
+        }
+        return fetchSize;
+    }
+
+    /**
+     * Take one of the connection's in-flight permits for a request of this statement, waiting no longer than the query
+     * timeout, or the socket read timeout when there is none, for a request in flight to complete. A saturated
+     * connection then fails the request instead of blocking without end, which could never end when the caller is
+     * the driver thread that completes requests.
+     * @param permits            In-flight permits of the connection.
+     * @param readTimeoutMillis  Socket read timeout of the cluster.
+     * @throws SQLTransientException  No permit was released in time, or the thread was interrupted.
+     * @throws SQLTimeoutException    The statement was cancelled while waiting.
+     */
+    void acquirePermit(Semaphore permits, long readTimeoutMillis) throws SQLException
+    {
+        if (permits.tryAcquire()) return;
+
+        long timeoutMillis = (queryTimeout > 0) ? TimeUnit.SECONDS.toMillis(queryTimeout) : readTimeoutMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        permitCancelled = false;
+        awaitingPermit = true;
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLTransientException(String.format(Utils.NO_IN_FLIGHT_PERMIT, timeoutMillis));
+                }
+                if (permits.tryAcquire(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(PERMIT_POLL_MILLIS)), TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+                if (permitCancelled) {
+                    throw new SQLTimeoutException(Utils.QUERY_CANCELLED);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientException(String.format(Utils.NO_IN_FLIGHT_PERMIT, timeoutMillis), e);
+        } finally {
+            awaitingPermit = false;
+        }
+    }
+
+    /**
+     * Wait for a request made on behalf of this statement, for no longer than the query timeout.
+     * @throws SQLTimeoutException  The query timeout expired or the request was cancelled.
+     */
+    com.datastax.driver.core.ResultSet await(ResultSetFuture future) throws SQLException
+    {
+        inFlight = future;
+
+        try {
+            if (queryTimeout > 0) {
+                return future.getUninterruptibly(queryTimeout, TimeUnit.SECONDS);
+            }
+            return future.getUninterruptibly();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new SQLTimeoutException(String.format(Utils.QUERY_TIMED_OUT, queryTimeout), e);
+        } catch (CancellationException e) {
+            throw new SQLTimeoutException(Utils.QUERY_CANCELLED, e);
+        } catch (DriverException e) {
+            if (isTimeout(e)) {
+                String msg = (queryTimeout > 0) ? String.format(Utils.QUERY_TIMED_OUT, queryTimeout) : Utils.READ_TIMED_OUT;
+                throw new SQLTimeoutException(msg, e);
+            }
+            throw e;
+        } finally {
+            inFlight = null;
+        }
+    }
+
+    /**
+     * @return {@code true} when the request timed out on every host it was tried on.
+     */
+    static boolean isTimeout(DriverException e)
+    {
+        if (e instanceof NoHostAvailableException) {
+            boolean timedOut = !((NoHostAvailableException) e).getErrors().isEmpty();
+            for (Throwable error : ((NoHostAvailableException) e).getErrors().values()) {
+                timedOut &= error instanceof OperationTimedOutException;
+            }
+            return timedOut;
+        }
+
+        return e instanceof OperationTimedOutException;
+    }
+
     @Override
     public int compareTo(Object target)
     {
@@ -20,8 +20,12 @@
  */
 package com.micromux.cassandra.jdbc;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 public interface CassandraStatementExtras extends Statement
@@ -29,4 +33,63 @@ public interface CassandraStatementExtras extends Statement
     void setConsistencyLevel(ConsistencyLevel consistencyLevel);
     
     ConsistencyLevel getConsistencyLevel();
+
+    /**
+     * Flag the statement as safe to run more than once, so that it may be retried after a write timeout or sent to
+     * another host speculatively. Statements are not idempotent unless flagged.
+     */
+    void setIdempotent(boolean idempotent);
+
+    boolean isIdempotent();
+
+    /**
+     * Run this statement with the settings of an execution profile defined by a {@code profile.<name>} connection
+     * property, such as {@code profile.reads=consistency:LOCAL_ONE,fetchSize:5000}. The profile's consistency, fetch
+     * size and idempotence replace the statement's own and may still be changed with their setters; its serial
+     * consistency, read timeout and retries apply to every execution. A query timeout takes precedence over the
+     * profile's read timeout. {@code null} returns the statement to the connection defaults.
+     */
+    void setExecutionProfile(String name) throws SQLException;
+
+    /**
+     * @return Name of the execution profile in use, or {@code null} when there is none.
+     */
+    String getExecutionProfile();
+
+    /**
+     * Start the next execution where an earlier result stopped, using the position returned by
+     * {@link CassandraResultSetExtras#getPagingState()} for the same query and parameters. The earlier result may have
+     * been read on another connection. The position applies to the next execution only; {@code null} clears it.
+     */
+    void setPagingState(String pagingState) throws SQLException;
+
+    /**
+     * Send the query without waiting for it. The future completes with the result set, or fails with the exception
+     * {@link #executeQuery(String)} would have thrown. A connection has at most {@code maxInFlight} requests
+     * outstanding, so this waits for one of them to complete when that many are already in flight, for no longer than
+     * the query timeout, or the socket read timeout when there is none, before throwing an
+     * {@link java.sql.SQLTransientException}. Callbacks run on the driver thread that completes requests should not
+     * send further requests: while they wait for a permit, no request of the connection can complete.
+     */
+    ListenableFuture<ResultSet> executeQueryAsync(String cql) throws SQLException;
+
+    /**
+     * Send the statement without waiting for it; the future completes with the count
+     * {@link #executeUpdate(String)} would have returned. See {@link #executeQueryAsync(String)}.
+     */
+    ListenableFuture<Integer> executeUpdateAsync(String cql) throws SQLException;
+
+    /**
+     * Whether the last update this statement executed was applied. Only a lightweight transaction whose
+     * {@code IF} conditions were not met is not applied, and its update count is then 0.
+     */
+    boolean wasApplied() throws SQLException;
+
+    /**
+     * Native batch type that {@link #executeBatch()} sends; unlogged unless the connection sets {@code batchType}.
+     * Only logged batches are applied atomically.
+     */
+    void setBatchType(BatchStatement.Type batchType);
+
+    BatchStatement.Type getBatchType();
 }
@@ -1,7 +1,6 @@
 package com.micromux.cassandra.jdbc;
 
 import com.datastax.driver.core.DataType;
-import org.apache.commons.lang3.StringUtils;
 
 import java.sql.Types;
 
@@ -142,7 +141,8 @@ public enum CassandraValidatorType {
         try {
 
             for (CassandraValidatorType cvt : CassandraValidatorType.values()) {
-                if (StringUtils.equalsIgnoreCase(dataType.getName().name(), cvt.getName().name())) {
+                // text columns are named VARCHAR when prepared statements describe them, but TEXT in the schema
+                if (dataType.getName().isCompatibleWith(cvt.getName())) {
                     validatorType = cvt;
                     break;
                 }
@@ -0,0 +1,585 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.MaterializedViewMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.SchemaChangeListenerBase;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.UserType;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A native {@link Cluster} shared by every {@link CassandraConnection} with matching connection properties. One
+ * {@link Session} is kept per keyspace so that connections bound to different keyspaces never see each other's
+ * {@code USE} statements, and so that switching keyspace is a lookup rather than a round trip. Instances are
+ * handed out and reference counted by {@link ClusterRegistry}.
+ */
+class ClusterReference
+{
+
+    private static final Logger logger = Utils.getLogger();
+
+    /**
+     * Closes sessions that stay idle while no connection acquires or releases a session of their cluster.
+     */
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "twig-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final String key;
+
+    private final Properties properties;
+
+    /**
+     * Default time a session may go unused before it is closed.
+     */
+    static final long DEFAULT_SESSION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Sessions keyed by the keyspace they are logged into; the empty string is the unbound session.
+     */
+    private final Map<String, SessionEntry> sessions = new HashMap<String, SessionEntry>();
+
+    private final long sessionIdleMillis;
+
+    /**
+     * Pending sweep of idle sessions, if any.
+     */
+    private ScheduledFuture<?> sweep;
+
+    /**
+     * Default number of prepared statements cached for the cluster.
+     */
+    static final int DEFAULT_PREPARED_CACHE_SIZE = 1000;
+
+    private final PreparedStatementCache preparedStatements;
+
+    /**
+     * The cluster, once the thread that started building it is done; set under the monitor but built outside it,
+     * so that connections to other keyspaces never wait on the seed probe.
+     */
+    private SettableFuture<Cluster> cluster;
+
+    /**
+     * Outcome of the seed probe used to bootstrap the current cluster.
+     */
+    private SeedProbe seeds;
+
+    /**
+     * Number of connections holding this reference; guarded by the {@link ClusterRegistry}.
+     */
+    private int references = 0;
+
+    /**
+     * @throws SQLException  The session idle timeout or prepared cache size is not a non-negative integer.
+     */
+    ClusterReference(String key, Properties props) throws SQLException
+    {
+        this.key = key;
+        this.properties = (Properties)props.clone();
+        this.sessionIdleMillis = CassandraConnection.longProperty(props, Utils.TAG_SESSION_IDLE_TIMEOUT, DEFAULT_SESSION_IDLE_MILLIS);
+        this.preparedStatements = new PreparedStatementCache(CassandraConnection.intProperty(props, Utils.TAG_PREPARED_CACHE_SIZE, DEFAULT_PREPARED_CACHE_SIZE));
+    }
+
+    String getKey()
+    {
+        return key;
+    }
+
+    int retain()
+    {
+        return ++references;
+    }
+
+    int release()
+    {
+        return --references;
+    }
+
+    /**
+     * Return the shared session for a keyspace, connecting the cluster first if this is the first request. A
+     * cluster that failed to initialize is closed by the native driver; in that case it is rebuilt here. Sessions
+     * are cached per keyspace, so switching between keyspaces that are already in use costs no network trip. Each
+     * call must be paired with {@link #releaseSession(Session)}.
+     * @param keyspace  Keyspace to log into; may be {@code null} for an unbound session.
+     * @return Shared session for the keyspace.
+     * @throws SQLException  Unable to build the cluster.
+     */
+    Session connect(String keyspace) throws SQLException
+    {
+        String name = keyspaceName(keyspace);
+        Cluster current = cluster();
+        SessionEntry entry;
+
+        synchronized (this)
+        {
+            entry = sessions.get(name);
+
+            if ((entry == null) || entry.isClosed())
+            {
+                entry = new SessionEntry(name.isEmpty() ? current.connectAsync() : current.connectAsync(Metadata.quote(name)));
+                sessions.put(name, entry);
+                logger.log(Level.FINE, String.format("Connecting session for keyspace '%s' on %s", name, current.getClusterName()));
+            }
+
+            entry.users++;
+            evictIdleSessions();
+        }
+
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(entry.future);
+        }
+        catch (ExecutionException e)
+        {
+            synchronized (this)
+            {
+                // the next connection to the keyspace tries again
+                if (sessions.get(name) == entry)
+                {
+                    sessions.remove(name);
+                }
+            }
+
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Return the cluster, building it if there is none yet or the last one is closed. Only the thread that finds
+     * the cluster missing probes the seeds and builds it, outside the monitor; other threads wait for its outcome.
+     * @return Initialized cluster.
+     * @throws SQLException  Unable to build the cluster.
+     */
+    private Cluster cluster() throws SQLException
+    {
+        SettableFuture<Cluster> future;
+        boolean build = false;
+
+        synchronized (this)
+        {
+            if ((cluster == null) || isClosed(cluster))
+            {
+                cluster = SettableFuture.create();
+                build = true;
+            }
+
+            future = cluster;
+        }
+
+        if (build)
+        {
+            build(future);
+        }
+
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(future);
+        }
+        catch (ExecutionException e)
+        {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private void build(SettableFuture<Cluster> future)
+    {
+        try
+        {
+            SeedProbe probe = probeSeeds(properties);
+            Cluster built = CassandraConnection.createClusterBuilder(properties, probe.getContactPoints()).build();
+
+            try
+            {
+                built.init();
+                built.register(new SchemaListener());
+            }
+            catch (RuntimeException e)
+            {
+                built.close();
+                throw e;
+            }
+
+            synchronized (this)
+            {
+                if (cluster != future)
+                {
+                    // closed while the cluster was being built
+                    built.close();
+                    future.setException(new SQLNonTransientConnectionException(Utils.WAS_CLOSED_CON));
+                    return;
+                }
+
+                seeds = probe;
+                sessions.clear();
+                preparedStatements.clear();
+            }
+
+            future.set(built);
+        }
+        catch (Throwable e)
+        {
+            future.setException(e);
+        }
+    }
+
+    private static boolean isClosed(ListenableFuture<Cluster> future)
+    {
+        Cluster built = valueOf(future);
+        return future.isDone() && ((built == null) || built.isClosed());
+    }
+
+    /**
+     * @return The value of a future, or {@code null} if it is still running or failed.
+     */
+    private static <T> T valueOf(ListenableFuture<T> future)
+    {
+        if (!future.isDone())
+        {
+            return null;
+        }
+
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(future);
+        }
+        catch (ExecutionException e)
+        {
+            return null;
+        }
+    }
+
+    private static SQLException rethrow(Throwable cause)
+    {
+        if (cause instanceof SQLException)
+        {
+            return (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException)
+        {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error)
+        {
+            throw (Error) cause;
+        }
+
+        return new SQLNonTransientConnectionException(cause);
+    }
+
+    /**
+     * Release a session returned from {@link #connect(String)}. A session that no connection uses is closed
+     * once it has been idle for longer than {@link Utils#TAG_SESSION_IDLE_TIMEOUT}.
+     * @param session  Session to release.
+     */
+    synchronized void releaseSession(Session session)
+    {
+        for (SessionEntry entry : sessions.values())
+        {
+            if (entry.getSession() == session)
+            {
+                entry.users--;
+                entry.idleSince = System.currentTimeMillis();
+                break;
+            }
+        }
+
+        evictIdleSessions();
+    }
+
+    /**
+     * Close sessions that have been unused for longer than the idle timeout. This runs whenever a session is
+     * acquired or released, and from a sweep scheduled for when the next idle session expires, so that an idle
+     * cluster frees its sessions as well.
+     */
+    private void evictIdleSessions()
+    {
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+
+        for (Iterator<Map.Entry<String, SessionEntry>> it = sessions.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<String, SessionEntry> idle = it.next();
+            SessionEntry entry = idle.getValue();
+
+            if (entry.users > 0)
+            {
+                continue;
+            }
+
+            if (now - entry.idleSince >= sessionIdleMillis)
+            {
+                it.remove();
+                entry.close();
+                logger.log(Level.FINE, String.format("Evicted idle session for keyspace '%s'", idle.getKey()));
+            }
+            else
+            {
+                next = Math.min(next, entry.idleSince + sessionIdleMillis - now);
+            }
+        }
+
+        if ((next != Long.MAX_VALUE) && (sweep == null))
+        {
+            sweep = sweeper.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    synchronized (ClusterReference.this)
+                    {
+                        sweep = null;
+                        evictIdleSessions();
+                    }
+                }
+            }, next, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Number of sessions currently open on this cluster.
+     */
+    synchronized int getSessionCount()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * Prepare a query with a session of this cluster, or return the statement prepared for the same query and
+     * keyspace by any connection sharing the cluster.
+     * @param session  Session of this cluster to prepare with.
+     * @param query    Scrubbed query.
+     * @return Native prepared statement.
+     * @throws SQLException  Unable to prepare the query.
+     */
+    PreparedStatement prepare(Session session, String query) throws SQLException
+    {
+        return preparedStatements.prepare(session, query);
+    }
+
+    PreparedStatementCache getPreparedStatements()
+    {
+        return preparedStatements;
+    }
+
+    /**
+     * Probe every seed host concurrently; only the seeds that respond within the connect timeout are used as
+     * contact points, the rest of the ring is discovered by the native driver from there.
+     * @param props  Connection properties.
+     * @return Probe results.
+     * @throws SQLException  No seed host responded.
+     */
+    private static SeedProbe probeSeeds(Properties props) throws SQLException
+    {
+        String[] hosts = Utils.splitHosts(props.getProperty(Utils.TAG_SERVER_NAME));
+        int port = Integer.parseInt(props.getProperty(Utils.TAG_PORT_NUMBER, "" + Utils.DEFAULT_PORT));
+        int timeout = CassandraConnection.intProperty(props, Utils.TAG_CONNECT_TIMEOUT, SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+
+        SeedProbe probe = new SeedProbe(hosts, (port > 0) ? port : Utils.DEFAULT_PORT, timeout).probe();
+
+        if (probe.getContactPoints().isEmpty())
+        {
+            throw new SQLNonTransientConnectionException(String.format(Utils.NO_SEEDS, timeout, probe.getFailed(), probe.getPending()));
+        }
+
+        return probe;
+    }
+
+    /**
+     * Publish which seeds responded to the bootstrap of this cluster, and how fast, as client info.
+     * @param clientInfo  Client info of the connection.
+     */
+    synchronized void describeSeeds(Properties clientInfo)
+    {
+        if (seeds != null)
+        {
+            seeds.describe(clientInfo);
+        }
+    }
+
+    /**
+     * Normalize a keyspace identifier the way Cassandra does: quoted names are case sensitive and unquoted names
+     * are folded to lower case.
+     * @param keyspace  Keyspace as written in the URL or a {@code USE} statement.
+     * @return Normalized keyspace name; the empty string if none was specified.
+     */
+    static String keyspaceName(String keyspace)
+    {
+        String name = StringUtils.defaultString(keyspace).trim();
+
+        if ((name.length() > 1) && name.startsWith("\"") && name.endsWith("\""))
+        {
+            return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+
+        return name.toLowerCase();
+    }
+
+    /**
+     * Shut down the cluster along with all of its sessions.
+     */
+    synchronized void close()
+    {
+        sessions.clear();
+        preparedStatements.clear();
+
+        if (sweep != null)
+        {
+            sweep.cancel(false);
+            sweep = null;
+        }
+
+        // a cluster still being built is closed by the thread building it
+        Cluster built = (cluster != null) ? valueOf(cluster) : null;
+
+        if (built != null)
+        {
+            built.close();
+        }
+
+        cluster = null;
+    }
+
+    /**
+     * Prepares cached statements again when the schema of the tables they use changes, so that they never describe
+     * columns that have been added, dropped or retyped since. Runs on the event thread of the native driver, which
+     * it never blocks.
+     */
+    private class SchemaListener extends SchemaChangeListenerBase
+    {
+        @Override
+        public void onTableChanged(TableMetadata current, TableMetadata previous)
+        {
+            preparedStatements.invalidate(current.getKeyspace().getName(), current.getName());
+        }
+
+        @Override
+        public void onTableRemoved(TableMetadata table)
+        {
+            preparedStatements.invalidate(table.getKeyspace().getName(), table.getName());
+        }
+
+        @Override
+        public void onMaterializedViewChanged(MaterializedViewMetadata current, MaterializedViewMetadata previous)
+        {
+            preparedStatements.invalidate(current.getKeyspace().getName(), current.getName());
+        }
+
+        @Override
+        public void onMaterializedViewRemoved(MaterializedViewMetadata view)
+        {
+            preparedStatements.invalidate(view.getKeyspace().getName(), view.getName());
+        }
+
+        @Override
+        public void onUserTypeChanged(UserType current, UserType previous)
+        {
+            // any table of the keyspace may hold the type, even nested in a collection
+            preparedStatements.invalidate(current.getKeyspace(), null);
+        }
+
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace)
+        {
+            preparedStatements.invalidate(keyspace.getName(), null);
+        }
+    }
+
+    private static class SessionEntry
+    {
+        final ListenableFuture<Session> future;
+
+        /**
+         * Number of connections currently bound to the session.
+         */
+        int users = 0;
+
+        long idleSince = System.currentTimeMillis();
+
+        SessionEntry(ListenableFuture<Session> future)
+        {
+            this.future = future;
+        }
+
+        /**
+         * @return The session, or {@code null} if it is still connecting or failed to connect.
+         */
+        Session getSession()
+        {
+            return valueOf(future);
+        }
+
+        boolean isClosed()
+        {
+            Session session = getSession();
+            return future.isDone() && ((session == null) || session.isClosed());
+        }
+
+        void close()
+        {
+            Session session = getSession();
+
+            if (session != null)
+            {
+                session.closeAsync();
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        // never expose the credentials that are part of the key
+        return String.format("%s[%s]", getClass().getSimpleName(), properties.getProperty(Utils.TAG_SERVER_NAME));
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.micromux.cassandra.jdbc.Utils.*;
+
+/**
+ * Driver-wide registry of shared {@link ClusterReference} instances. Connections that are opened with the same
+ * contact points, port, credentials, SSL and tuning properties share one native {@code Cluster} and its sessions;
+ * the last connection to release a reference shuts the cluster down.
+ */
+class ClusterRegistry
+{
+
+    private static final Logger logger = Utils.getLogger();
+
+    /**
+     * Connection properties that influence how the native {@code Cluster} is built; connections only share a
+     * cluster when all of these match.
+     */
+    static final String[] CLUSTER_PROPERTIES = {
+            TAG_PORT_NUMBER,
+            TAG_USER,
+            TAG_PASSWORD,
+            TAG_SSL_ENABLE,
+            TAG_TRUST_STORE,
+            TAG_TRUST_TYPE,
+            TAG_TRUST_PASSWORD,
+            TAG_CONNECT_TIMEOUT,
+            TAG_SESSION_IDLE_TIMEOUT,
+            TAG_READ_TIMEOUT,
+            TAG_TCP_NO_DELAY,
+            TAG_CORE_CONNECTIONS,
+            TAG_MAX_CONNECTIONS,
+            TAG_MAX_REQUESTS,
+            TAG_HEARTBEAT_INTERVAL,
+            TAG_COMPRESSION,
+            TAG_PRIMARY_DC,
+            TAG_BACKUP_DC,
+            TAG_CONNECTION_RETRIES,
+            TAG_SPECULATIVE_DELAY,
+            TAG_SPECULATIVE_PERCENTILE,
+            TAG_SPECULATIVE_EXECUTIONS,
+            TAG_PREPARED_CACHE_SIZE
+    };
+
+    private static final Map<String, ClusterReference> references = new HashMap<String, ClusterReference>();
+
+    private ClusterRegistry()
+    {
+    }
+
+    /**
+     * Acquire a shared cluster for the specified connection properties; the cluster is created on first use and
+     * reference counted after that. Each call must be paired with {@link #release(ClusterReference)}.
+     * @param props  Connection properties.
+     * @return Shared cluster reference.
+     * @throws SQLException  The cluster properties are invalid.
+     */
+    static ClusterReference acquire(Properties props) throws SQLException
+    {
+        String key = createKey(props);
+
+        synchronized (references)
+        {
+            ClusterReference reference = references.get(key);
+
+            if (reference == null)
+            {
+                reference = new ClusterReference(key, props);
+                references.put(key, reference);
+                logger.log(Level.FINE, "Registered shared cluster: " + reference);
+            }
+
+            reference.retain();
+            return reference;
+        }
+    }
+
+    /**
+     * Release a reference previously returned from {@link #acquire(Properties)}. When the last reference is
+     * released the cluster is removed from the registry and closed.
+     * @param reference  Reference to release.
+     */
+    static void release(ClusterReference reference)
+    {
+        boolean last;
+
+        synchronized (references)
+        {
+            last = (reference.release() == 0);
+
+            if (last && (references.get(reference.getKey()) == reference))
+            {
+                references.remove(reference.getKey());
+            }
+        }
+
+        // closing the cluster blocks; never do this while holding the registry
+        if (last)
+        {
+            logger.log(Level.FINE, "Closing shared cluster: " + reference);
+            reference.close();
+        }
+    }
+
+    /**
+     * Number of shared clusters currently open.
+     */
+    static int size()
+    {
+        synchronized (references)
+        {
+            return references.size();
+        }
+    }
+
+    /**
+     * Build the registry key for a set of connection properties. Seed hosts are normalized so that the order
+     * and case in which they appear in the URL does not matter.
+     * @param props  Connection properties.
+     * @return Key that is equal for all connections that may share a cluster.
+     */
+    static String createKey(Properties props)
+    {
+        StringBuilder sb = new StringBuilder();
+
+        String[] hosts = splitHosts(props.getProperty(TAG_SERVER_NAME));
+        for (int i = 0; i < hosts.length; i++)
+        {
+            hosts[i] = hosts[i].toLowerCase();
+        }
+        Arrays.sort(hosts);
+
+        sb.append(StringUtils.join(hosts, ","));
+
+        for (String tag : CLUSTER_PROPERTIES)
+        {
+            String value = props.getProperty(tag);
+            sb.append('|').append(tag).append('=').append(value == null ? "" : value);
+        }
+
+        return sb.toString();
+    }
+
+}
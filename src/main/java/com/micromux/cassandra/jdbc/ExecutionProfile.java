@@ -0,0 +1,208 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.RetryPolicy;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.micromux.cassandra.jdbc.Utils.*;
+
+/**
+ * Named set of execution settings, defined by a {@code profile.<name>} connection property and selected for a
+ * statement with {@link CassandraStatementExtras#setExecutionProfile(String)}. The property value is a comma separated
+ * list of {@code setting:value} pairs, such as {@code consistency:LOCAL_ONE,fetchSize:5000,readTimeout:2000}; the
+ * settings are {@code consistency}, {@code serialConsistency}, {@code fetchSize}, {@code readTimeout} (milliseconds),
+ * {@code idempotent} and {@code retries}. Consistency, fetch size and idempotence set on the statement itself take
+ * precedence over the profile, and settings the profile leaves out keep the defaults of the connection and the
+ * cluster.
+ */
+class ExecutionProfile
+{
+
+    private static final String CONSISTENCY = "consistency";
+    private static final String SERIAL_CONSISTENCY = "serialconsistency";
+    private static final String FETCH_SIZE = "fetchsize";
+    private static final String READ_TIMEOUT = "readtimeout";
+    private static final String IDEMPOTENT = "idempotent";
+    private static final String RETRIES = "retries";
+
+    private final String name;
+
+    private ConsistencyLevel consistencyLevel;
+
+    private ConsistencyLevel serialConsistencyLevel;
+
+    private Integer fetchSize;
+
+    private Integer readTimeoutMillis;
+
+    private Boolean idempotent;
+
+    private RetryPolicy retryPolicy;
+
+    private ExecutionProfile(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return Every profile defined in the connection properties, by lower case name.
+     * @throws SQLException  A profile has a setting that is unknown or has an invalid value.
+     */
+    static Map<String, ExecutionProfile> profiles(Properties props) throws SQLException
+    {
+        Map<String, ExecutionProfile> profiles = new HashMap<String, ExecutionProfile>();
+
+        for (String key : props.stringPropertyNames())
+        {
+            if (key.regionMatches(true, 0, TAG_PROFILE_PREFIX, 0, TAG_PROFILE_PREFIX.length())
+                    && key.length() > TAG_PROFILE_PREFIX.length())
+            {
+                String name = key.substring(TAG_PROFILE_PREFIX.length()).toLowerCase(Locale.ENGLISH);
+                profiles.put(name, parse(name, props.getProperty(key)));
+            }
+        }
+
+        return profiles;
+    }
+
+    static ExecutionProfile parse(String name, String settings) throws SQLException
+    {
+        ExecutionProfile profile = new ExecutionProfile(name);
+
+        for (String setting : StringUtils.split(StringUtils.trimToEmpty(settings), ','))
+        {
+            String[] pair = setting.split(":", 2);
+            String key = pair[0].trim().toLowerCase(Locale.ENGLISH);
+            String value = (pair.length > 1) ? pair[1].trim() : "";
+
+            try
+            {
+                if (CONSISTENCY.equals(key))
+                {
+                    profile.consistencyLevel = ConsistencyLevel.valueOf(value.toUpperCase(Locale.ENGLISH));
+                }
+                else if (SERIAL_CONSISTENCY.equals(key))
+                {
+                    profile.serialConsistencyLevel = ConsistencyLevel.valueOf(value.toUpperCase(Locale.ENGLISH));
+                    if (!profile.serialConsistencyLevel.isSerial()) throw new IllegalArgumentException(value);
+                }
+                else if (FETCH_SIZE.equals(key))
+                {
+                    profile.fetchSize = nonNegative(value);
+                }
+                else if (READ_TIMEOUT.equals(key))
+                {
+                    profile.readTimeoutMillis = nonNegative(value);
+                }
+                else if (IDEMPOTENT.equals(key))
+                {
+                    if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false"))
+                        throw new IllegalArgumentException(value);
+                    profile.idempotent = Boolean.valueOf(value);
+                }
+                else if (RETRIES.equals(key))
+                {
+                    profile.retryPolicy = new BoundedRetryPolicy(nonNegative(value));
+                }
+                else
+                {
+                    throw new IllegalArgumentException(key);
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new SQLNonTransientConnectionException(String.format(BAD_PROFILE, name, setting.trim()));
+            }
+        }
+
+        return profile;
+    }
+
+    private static int nonNegative(String value)
+    {
+        int number = Integer.parseInt(value);
+        if (number < 0) throw new IllegalArgumentException(value);
+        return number;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    ConsistencyLevel getConsistencyLevel()
+    {
+        return consistencyLevel;
+    }
+
+    ConsistencyLevel getSerialConsistencyLevel()
+    {
+        return serialConsistencyLevel;
+    }
+
+    Integer getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    Integer getReadTimeoutMillis()
+    {
+        return readTimeoutMillis;
+    }
+
+    Boolean getIdempotent()
+    {
+        return idempotent;
+    }
+
+    RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+
+    /**
+     * Apply the settings that have no statement level setter to a native statement.
+     */
+    void configure(Statement statement)
+    {
+        if (serialConsistencyLevel != null) statement.setSerialConsistencyLevel(serialConsistencyLevel);
+        if (readTimeoutMillis != null) statement.setReadTimeoutMillis(readTimeoutMillis);
+        if (retryPolicy != null) statement.setRetryPolicy(retryPolicy);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ExecutionProfile[name=%s, consistency=%s, serialConsistency=%s, fetchSize=%s, readTimeout=%s, idempotent=%s, retryPolicy=%s]",
+                name, consistencyLevel, serialConsistencyLevel, fetchSize, readTimeoutMillis, idempotent, retryPolicy);
+    }
+
+}
@@ -30,7 +30,6 @@ import java.sql.SQLClientInfoException;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLNonTransientConnectionException;
-import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.HashSet;
@@ -142,7 +141,7 @@ class ManagedConnection extends AbstractConnection implements Connection
 	}
 
 	@Override
-	public boolean isValid(int timeout) throws SQLTimeoutException
+	public boolean isValid(int timeout) throws SQLException
 	{
 		return physicalConnection.isValid(timeout);
 	}
@@ -439,14 +438,32 @@ class ManagedConnection extends AbstractConnection implements Connection
 	}
 
 	@Override
-	public String getSchema() throws SQLException {
-		// TODO Auto-generated method stub
-		return null;
+	public String getSchema() throws SQLException
+	{
+		checkNotClosed();
+		try
+		{
+			return physicalConnection.getSchema();
+		}
+		catch (SQLException sqlException)
+		{
+			pooledCassandraConnection.connectionErrorOccurred(sqlException);
+			throw sqlException;
+		}
 	}
 
 	@Override
-	public void setSchema(String arg0) throws SQLException {
-		// TODO Auto-generated method stub
-		
+	public void setSchema(String schema) throws SQLException
+	{
+		checkNotClosed();
+		try
+		{
+			physicalConnection.setSchema(schema);
+		}
+		catch (SQLException sqlException)
+		{
+			pooledCassandraConnection.connectionErrorOccurred(sqlException);
+			throw sqlException;
+		}
 	}
 }
@@ -298,6 +298,21 @@ class ManagedPreparedStatement extends AbstractStatement implements PreparedStat
 		}
 	}
 
+	@Override
+	public void cancel() throws SQLException
+	{
+		checkNotClosed();
+		try
+		{
+			preparedStatement.cancel();
+		}
+		catch (SQLException sqlException)
+		{
+			pooledCassandraConnection.statementErrorOccurred(preparedStatement, sqlException);
+			throw sqlException;
+		}
+	}
+
 	@Override
 	public int getQueryTimeout() throws SQLException
 	{
@@ -22,8 +22,11 @@ package com.micromux.cassandra.jdbc;
 
 import java.sql.SQLException;
 import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -45,7 +48,24 @@ class PooledCassandraConnection implements PooledConnection
 
 	volatile Set<StatementEventListener> statementEventListeners = new HashSet<StatementEventListener>();
 
-	private Map<String, Set<CassandraPreparedStatement>> freePreparedStatements = new HashMap<String, Set<CassandraPreparedStatement>>();
+	/**
+	 * Default limits on the idle prepared statements kept for reuse: in all, and for any one query
+	 */
+	static final int DEFAULT_MAX_STATEMENTS = 100;
+	static final int DEFAULT_MAX_IDLE_STATEMENTS_PER_QUERY = 4;
+
+	private int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+	private int maxIdleStatementsPerQuery = DEFAULT_MAX_IDLE_STATEMENTS_PER_QUERY;
+
+	private StatementPoolStatistics statistics = new StatementPoolStatistics();
+
+	/**
+	 * Idle statements by query, the least recently used query first; queries without idle statements are removed
+	 */
+	private Map<String, Set<CassandraPreparedStatement>> freePreparedStatements = new LinkedHashMap<String, Set<CassandraPreparedStatement>>(16, 0.75f, true);
+
+	private int freeStatementCount = 0;
 
 	private Map<String, Set<CassandraPreparedStatement>> usedPreparedStatements = new HashMap<String, Set<CassandraPreparedStatement>>();
 
@@ -54,6 +74,25 @@ class PooledCassandraConnection implements PooledConnection
 		this.physicalConnection = physicalConnection;
 	}
 
+	/**
+	 * Limit the idle statements kept for reuse, closing the least recently used ones that no longer fit.
+	 * @param maxStatements              Idle statements kept in all; zero disables statement pooling.
+	 * @param maxIdleStatementsPerQuery  Idle statements kept for any one query.
+	 * @param statistics                 Counters to record pooling in.
+	 */
+	synchronized void configureStatementPool(int maxStatements, int maxIdleStatementsPerQuery, StatementPoolStatistics statistics)
+	{
+		this.maxStatements = maxStatements;
+		this.maxIdleStatementsPerQuery = maxIdleStatementsPerQuery;
+		this.statistics = statistics;
+		evictStatements();
+	}
+
+	synchronized int getIdleStatementCount()
+	{
+		return freeStatementCount;
+	}
+
 	@Override
 	public CassandraConnection getConnection()
 	{
@@ -108,7 +147,7 @@ class PooledCassandraConnection implements PooledConnection
 		}
 	}
 
-	void statementClosed(CassandraPreparedStatement preparedStatement)
+	synchronized void statementClosed(CassandraPreparedStatement preparedStatement)
 	{
 		StatementEvent event = new StatementEvent(this, preparedStatement);
 		for (StatementEventListener listener : statementEventListeners)
@@ -117,25 +156,43 @@ class PooledCassandraConnection implements PooledConnection
 		}
 
 		String cql = preparedStatement.getCql();
-		Set<CassandraPreparedStatement> freeStatements = freePreparedStatements.get(cql);
-		Set<CassandraPreparedStatement> usedStatements = usedPreparedStatements.get(cql);
-
-		usedStatements.remove(preparedStatement);
+		removeUsed(cql, preparedStatement);
 		
 		preparedStatement.resetResults();
+		preparedStatement.resetSettings();
 		try
 		{
 			preparedStatement.clearParameters();
-			freeStatements.add(preparedStatement);
+			preparedStatement.setPagingState(null);
+			preparedStatement.clearBatch();
 		}
 		catch (SQLException sx)
 		{
 			logger.log(Level.WARNING, "Failed to close statement: " + cql, sx);
+			preparedStatement.close();
+			return;
+		}
+
+		Set<CassandraPreparedStatement> freeStatements = freePreparedStatements.get(cql);
+		if (freeStatements == null)
+		{
+			freeStatements = new HashSet<CassandraPreparedStatement>();
+			freePreparedStatements.put(cql, freeStatements);
+		}
+
+		if (freeStatements.size() >= maxIdleStatementsPerQuery)
+		{
+			evict(preparedStatement);
+			if (freeStatements.isEmpty()) freePreparedStatements.remove(cql);
+			return;
 		}
 
+		freeStatements.add(preparedStatement);
+		freeStatementCount++;
+		evictStatements();
 	}
 
-	void statementErrorOccurred(CassandraPreparedStatement preparedStatement, SQLException sqlException)
+	synchronized void statementErrorOccurred(CassandraPreparedStatement preparedStatement, SQLException sqlException)
 	{
 		StatementEvent event = new StatementEvent(this, preparedStatement, sqlException);
 		for (StatementEventListener listener : statementEventListeners)
@@ -143,39 +200,79 @@ class PooledCassandraConnection implements PooledConnection
 			listener.statementErrorOccurred(event);
 		}
 		
-		String cql = preparedStatement.getCql();
-		Set<CassandraPreparedStatement> usedStatements = usedPreparedStatements.get(cql);
-		
-		if (!(event.getSQLException() instanceof SQLRecoverableException))
+		// a timed out or otherwise transient failure leaves the statement usable
+		if (!(event.getSQLException() instanceof SQLRecoverableException)
+				&& !(event.getSQLException() instanceof SQLTransientException))
 		{
 			preparedStatement.close();
-			usedStatements.remove(preparedStatement);
+			removeUsed(preparedStatement.getCql(), preparedStatement);
 		}
 	}
 
 	public synchronized ManagedPreparedStatement prepareStatement(ManagedConnection managedConnection, String cql) throws SQLException
 	{
-		if (!freePreparedStatements.containsKey(cql)) {
-			freePreparedStatements.put(cql, new HashSet<CassandraPreparedStatement>());
-			usedPreparedStatements.put(cql, new HashSet<CassandraPreparedStatement>());
-		}
-		
 		Set<CassandraPreparedStatement> freeStatements = freePreparedStatements.get(cql);
-		Set<CassandraPreparedStatement> usedStatements = usedPreparedStatements.get(cql);
 
 		CassandraPreparedStatement managedPreparedStatement;
-		if (freeStatements.isEmpty())
+		if (freeStatements == null)
 		{
 			managedPreparedStatement = physicalConnection.prepareStatement(cql);
+			statistics.miss();
 		}
 		else
 		{
 			managedPreparedStatement = freeStatements.iterator().next();
 			freeStatements.remove(managedPreparedStatement);
+			freeStatementCount--;
+			if (freeStatements.isEmpty()) freePreparedStatements.remove(cql);
+			statistics.hit();
+		}
+
+		Set<CassandraPreparedStatement> usedStatements = usedPreparedStatements.get(cql);
+		if (usedStatements == null)
+		{
+			usedStatements = new HashSet<CassandraPreparedStatement>();
+			usedPreparedStatements.put(cql, usedStatements);
 		}
 		usedStatements.add(managedPreparedStatement);
 		
 		return new ManagedPreparedStatement(this, managedConnection, managedPreparedStatement);
 	}
 
+	private void removeUsed(String cql, CassandraPreparedStatement preparedStatement)
+	{
+		Set<CassandraPreparedStatement> usedStatements = usedPreparedStatements.get(cql);
+		if (usedStatements != null)
+		{
+			usedStatements.remove(preparedStatement);
+			if (usedStatements.isEmpty()) usedPreparedStatements.remove(cql);
+		}
+	}
+
+	/**
+	 * Close idle statements of the least recently used queries until no more than the maximum remain.
+	 */
+	private void evictStatements()
+	{
+		Iterator<Map.Entry<String, Set<CassandraPreparedStatement>>> queries = freePreparedStatements.entrySet().iterator();
+		while ((freeStatementCount > maxStatements) && queries.hasNext())
+		{
+			Set<CassandraPreparedStatement> freeStatements = queries.next().getValue();
+			for (Iterator<CassandraPreparedStatement> it = freeStatements.iterator(); (freeStatementCount > maxStatements) && it.hasNext(); )
+			{
+				evict(it.next());
+				it.remove();
+				freeStatementCount--;
+			}
+			if (freeStatements.isEmpty()) queries.remove();
+		}
+	}
+
+	private void evict(CassandraPreparedStatement preparedStatement)
+	{
+		preparedStatement.close();
+		statistics.evicted();
+		logger.log(Level.FINER, "Evicted pooled statement: " + preparedStatement.getCql());
+	}
+
 }
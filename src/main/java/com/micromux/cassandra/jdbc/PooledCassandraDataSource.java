@@ -20,11 +20,19 @@
  */
 package com.micromux.cassandra.jdbc;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -51,6 +59,14 @@ public class PooledCassandraDataSource implements DataSource, ConnectionEventLis
 
 	private volatile Set<PooledCassandraConnection> usedConnections = new HashSet<PooledCassandraConnection>();
 
+	private int maxStatements = PooledCassandraConnection.DEFAULT_MAX_STATEMENTS;
+
+	private int maxIdleStatementsPerQuery = PooledCassandraConnection.DEFAULT_MAX_IDLE_STATEMENTS_PER_QUERY;
+
+	private final StatementPoolStatistics statementStatistics = new StatementPoolStatistics();
+
+	private List<String> warmUpQueries = new ArrayList<String>();
+
 	public PooledCassandraDataSource(CassandraDataSource connectionPoolDataSource) throws SQLException
 	{
 		this.connectionPoolDataSource = connectionPoolDataSource;
@@ -70,6 +86,7 @@ public class PooledCassandraDataSource implements DataSource, ConnectionEventLis
 			pooledConnection = freeConnections.iterator().next();
 			freeConnections.remove(pooledConnection);
 		}
+		pooledConnection.configureStatementPool(maxStatements, maxIdleStatementsPerQuery, statementStatistics);
 		usedConnections.add(pooledConnection);
 		return new ManagedConnection(pooledConnection);
 	}
@@ -120,6 +137,253 @@ public class PooledCassandraDataSource implements DataSource, ConnectionEventLis
 		usedConnections.remove(connection);
 	}
 
+	/**
+	 * Limit the idle prepared statements each pooled connection keeps for reuse; when there are more, the
+	 * statements of the least recently prepared queries are closed. Zero disables statement pooling. Takes effect
+	 * as connections are next handed out.
+	 * @param maxStatements  Idle statements kept by one connection; default is 100.
+	 */
+	public synchronized void setMaxStatements(int maxStatements)
+	{
+		if (maxStatements < 0) throw new IllegalArgumentException("maxStatements may not be negative: " + maxStatements);
+		this.maxStatements = maxStatements;
+	}
+
+	public synchronized int getMaxStatements()
+	{
+		return maxStatements;
+	}
+
+	/**
+	 * Limit the idle statements each pooled connection keeps for any one query; statements closed beyond that are
+	 * released rather than pooled.
+	 * @param maxIdleStatementsPerQuery  Idle statements kept per query; default is 4.
+	 */
+	public synchronized void setMaxIdleStatementsPerQuery(int maxIdleStatementsPerQuery)
+	{
+		if (maxIdleStatementsPerQuery < 0)
+			throw new IllegalArgumentException("maxIdleStatementsPerQuery may not be negative: " + maxIdleStatementsPerQuery);
+		this.maxIdleStatementsPerQuery = maxIdleStatementsPerQuery;
+	}
+
+	public synchronized int getMaxIdleStatementsPerQuery()
+	{
+		return maxIdleStatementsPerQuery;
+	}
+
+	/**
+	 * @return Prepared statements that were reused from a pooled connection.
+	 */
+	public long getStatementHits()
+	{
+		return statementStatistics.getHits();
+	}
+
+	/**
+	 * @return Prepared statements that had to be created because none was pooled for the query.
+	 */
+	public long getStatementMisses()
+	{
+		return statementStatistics.getMisses();
+	}
+
+	/**
+	 * @return Pooled statements closed to stay within the limits.
+	 */
+	public long getStatementEvictions()
+	{
+		return statementStatistics.getEvictions();
+	}
+
+	/**
+	 * @return Idle prepared statements currently pooled by all connections.
+	 */
+	public synchronized int getIdleStatementCount()
+	{
+		int count = 0;
+		for (PooledCassandraConnection connection : freeConnections)
+		{
+			count += connection.getIdleStatementCount();
+		}
+		for (PooledCassandraConnection connection : usedConnections)
+		{
+			count += connection.getIdleStatementCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Queries for {@link #warmUp()} to prepare.
+	 * @param warmUpQueries  CQL of the statements the application prepares.
+	 */
+	public synchronized void setWarmUpQueries(List<String> warmUpQueries)
+	{
+		this.warmUpQueries = new ArrayList<String>(warmUpQueries);
+	}
+
+	public synchronized List<String> getWarmUpQueries()
+	{
+		return new ArrayList<String>(warmUpQueries);
+	}
+
+	/**
+	 * Read the queries for {@link #warmUp()} from a classpath resource. Statements end with a semicolon and may span
+	 * lines; lines starting with {@code --} or {@code //} are comments. Each statement is read as one line without its
+	 * semicolon; the prepared statement cache ignores such differences in layout, so the statements are shared with the
+	 * application however it formats them.
+	 * @param resource  Name of the resource, as for {@link ClassLoader#getResource(String)}.
+	 * @throws SQLException  The resource does not exist or can not be read.
+	 */
+	public synchronized void setWarmUpResource(String resource) throws SQLException
+	{
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		InputStream in = (loader == null) ? null : loader.getResourceAsStream(resource);
+		if (in == null) in = getClass().getClassLoader().getResourceAsStream(resource);
+		if (in == null) throw new SQLNonTransientException(String.format(Utils.NO_RESOURCE, resource));
+
+		try
+		{
+			warmUpQueries = readStatements(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+		}
+		catch (IOException e)
+		{
+			throw new SQLNonTransientException(String.format(Utils.NO_RESOURCE, resource), e);
+		}
+		finally
+		{
+			try
+			{
+				in.close();
+			}
+			catch (IOException e)
+			{
+				logger.log(Level.FINE, "Unable to close " + resource, e);
+			}
+		}
+	}
+
+	/**
+	 * Split a script into statements at the semicolons that end them. Semicolons and comment markers inside quoted
+	 * strings, quoted names and {@code $$} blocks are part of the statement; comments elsewhere are dropped,
+	 * including those that follow a statement on the same line, and line breaks become spaces.
+	 */
+	static List<String> readStatements(BufferedReader reader) throws IOException
+	{
+		List<String> statements = new ArrayList<String>();
+		StringBuilder statement = new StringBuilder();
+		boolean blockComment = false;
+		String quote = null;
+
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+		{
+			int length = line.length();
+
+			for (int i = 0; i < length; i++)
+			{
+				char c = line.charAt(i);
+
+				if (blockComment)
+				{
+					if (line.startsWith("*/", i))
+					{
+						blockComment = false;
+						i++;
+					}
+				}
+				else if (quote != null)
+				{
+					// a doubled quote is an escaped quote and leaves the text quoted
+					if (line.startsWith(quote, i))
+					{
+						statement.append(quote);
+						i += quote.length() - 1;
+						if (!quote.equals("$$") && line.startsWith(quote, i + 1))
+						{
+							statement.append(quote);
+							i++;
+						}
+						else
+						{
+							quote = null;
+						}
+					}
+					else
+					{
+						statement.append(c);
+					}
+				}
+				else if (line.startsWith("--", i) || line.startsWith("//", i))
+				{
+					break;
+				}
+				else if (line.startsWith("/*", i))
+				{
+					space(statement);
+					blockComment = true;
+					i++;
+				}
+				else if (c == ';')
+				{
+					add(statements, statement);
+				}
+				else if (Character.isWhitespace(c))
+				{
+					space(statement);
+				}
+				else if (line.startsWith("$$", i))
+				{
+					quote = "$$";
+					statement.append(quote);
+					i++;
+				}
+				else
+				{
+					if ((c == '\'') || (c == '"')) quote = String.valueOf(c);
+					statement.append(c);
+				}
+			}
+
+			// a line break inside quoted text is kept, anywhere else it only separates tokens
+			if (quote != null) statement.append('\n');
+			else space(statement);
+		}
+
+		add(statements, statement);
+		return statements;
+	}
+
+	private static void space(StringBuilder statement)
+	{
+		if ((statement.length() > 0) && (statement.charAt(statement.length() - 1) != ' ')) statement.append(' ');
+	}
+
+	private static void add(List<String> statements, StringBuilder statement)
+	{
+		String text = statement.toString().trim();
+		if (!text.isEmpty()) statements.add(text);
+		statement.setLength(0);
+	}
+
+	/**
+	 * Get the pool ready for traffic: open the connections it keeps idle, connected to every host of the cluster,
+	 * and prepare the warm-up queries all at once, so that the first requests neither connect nor prepare. The
+	 * prepared statements are shared by every connection to the cluster. Queries that fail to prepare are logged
+	 * and skipped.
+	 * @return Number of warm-up queries prepared.
+	 * @throws SQLException  Unable to connect.
+	 */
+	public synchronized int warmUp() throws SQLException
+	{
+		while (freeConnections.size() < MIN_POOL_SIZE)
+		{
+			PooledCassandraConnection pooledConnection = connectionPoolDataSource.getPooledConnection();
+			pooledConnection.addConnectionEventListener(this);
+			freeConnections.add(pooledConnection);
+		}
+
+		return freeConnections.iterator().next().getConnection().warmUp(warmUpQueries);
+	}
+
 	public synchronized void close()
 	{
 		closePooledConnections(usedConnections);
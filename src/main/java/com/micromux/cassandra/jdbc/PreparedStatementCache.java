@@ -0,0 +1,499 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of the native prepared statements of one shared cluster, so that a query any connection on the
+ * cluster has prepared before costs no round trip to prepare again. Statements are keyed on the keyspace of the
+ * preparing session as well as the query, since unqualified table names resolve against it, and the least recently
+ * used statement is evicted once the cache is full. Queries that only differ in layout, the whitespace between tokens
+ * and trailing semicolons, share a statement. Concurrent misses for the same query share one prepare request.
+ * <p>
+ * When the schema of a table changes, {@link #invalidate(String, String)} prepares the statements that use it again
+ * in the background. Until the new statement is ready the previous one keeps being handed out, so nobody waits on
+ * the schema change; once it is, the {@link #getGeneration() generation} moves on and statements prepared earlier
+ * can swap to it through {@link #latest(String)}.
+ */
+class PreparedStatementCache
+{
+
+    private static final Logger logger = Utils.getLogger();
+
+    static final String INFO_PREPARED_HITS = "PreparedCacheHits";
+    static final String INFO_PREPARED_MISSES = "PreparedCacheMisses";
+    static final String INFO_PREPARED_EVICTIONS = "PreparedCacheEvictions";
+    static final String INFO_PREPARED_INVALIDATIONS = "PreparedCacheInvalidations";
+    static final String INFO_PREPARED_SIZE = "PreparedCacheSize";
+
+    /**
+     * Table names following the keywords that introduce them, optionally qualified by a keyspace.
+     */
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:FROM|INTO|UPDATE)\\s+(\"(?:[^\"]|\"\")+\"|\\w+)(?:\\s*\\.\\s*(\"(?:[^\"]|\"\")+\"|\\w+))?",
+            Pattern.CASE_INSENSITIVE);
+
+    private final int capacity;
+
+    /**
+     * Cached queries by key, in access order; guarded by this cache.
+     */
+    private final Map<String, CacheEntry> statements;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+
+    /**
+     * Advanced every time a statement is replaced after a schema change.
+     */
+    private volatile long generation;
+
+    PreparedStatementCache(final int capacity)
+    {
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest)
+            {
+                if (size() <= capacity) return false;
+
+                evictions++;
+                discard(eldest.getValue());
+                logger.log(Level.FINER, String.format("Evicted prepared statement: %s", eldest.getKey()));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Return the prepared statement for a query in the keyspace the session is logged into, preparing it when it is
+     * not cached. A statement that fails to prepare is not cached.
+     * @param session  Session to prepare the query with.
+     * @param query    Query to prepare, already scrubbed.
+     * @return Native prepared statement.
+     * @throws SQLException  The prepare request was interrupted by something other than a driver error.
+     */
+    PreparedStatement prepare(Session session, String query) throws SQLException
+    {
+        String key = key(session, query);
+        ListenableFuture<PreparedStatement> future = prepareAsync(session, query);
+
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(future);
+        }
+        catch (ExecutionException e)
+        {
+            forget(key, future);
+
+            // rethrow driver errors as the blocking prepare would have, with the stack of this thread
+            if (e.getCause() instanceof DriverException) throw ((DriverException) e.getCause()).copy();
+            throw new SQLNonTransientException(e.getCause());
+        }
+    }
+
+    /**
+     * Start preparing a query without waiting for it, see {@link #prepare(Session, String)}.
+     * @return The cached statement or request when there is one, otherwise a new request.
+     */
+    ListenableFuture<PreparedStatement> prepareAsync(Session session, String query)
+    {
+        String key = key(session, query);
+
+        synchronized (this)
+        {
+            CacheEntry entry = statements.get(key);
+
+            if (entry != null)
+            {
+                hits++;
+                return (entry.ready != null) ? Futures.immediateFuture(entry.ready) : entry.future;
+            }
+
+            misses++;
+            ListenableFuture<PreparedStatement> future = session.prepareAsync(query);
+
+            if (capacity > 0)
+            {
+                entry = new CacheEntry(key, session, query, future);
+                statements.put(key, entry);
+                track(entry, future, false);
+            }
+
+            return future;
+        }
+    }
+
+    /**
+     * Prepare again, in the background, every cached statement that uses a table whose schema has changed. A
+     * statement whose tables are not known is prepared again whenever anything in its keyspace changes.
+     * @param keyspace  Keyspace of the table, as stored in the schema.
+     * @param table     Table, view or type name as stored in the schema; {@code null} for the whole keyspace.
+     */
+    synchronized void invalidate(String keyspace, String table)
+    {
+        List<CacheEntry> affected = new ArrayList<CacheEntry>();
+
+        // iterating does not count as an access, so the eviction order is left alone
+        for (CacheEntry entry : statements.values())
+        {
+            if ((entry.ready != null) && entry.uses(keyspace, table)) affected.add(entry);
+        }
+
+        for (CacheEntry entry : affected)
+        {
+            invalidations++;
+
+            if (entry.session.isClosed())
+            {
+                // nobody can prepare with the session any more, the next connection to ask prepares afresh
+                statements.remove(entry.key);
+                discard(entry);
+                continue;
+            }
+
+            // the native driver hands back the statement it already holds for an identical query, metadata and all,
+            // so the query is made distinct to get the server to describe its current columns
+            entry.version++;
+            ListenableFuture<PreparedStatement> future = entry.session.prepareAsync(
+                    String.format("%s /* schema %d */", entry.query, entry.version));
+            entry.future = future;
+            track(entry, future, true);
+
+            logger.log(Level.FINE, String.format("Preparing again after schema change of %s.%s: %s", keyspace,
+                    StringUtils.defaultString(table, "*"), entry.query));
+        }
+    }
+
+    /**
+     * Return the newest statement prepared for a query, as it stands after any schema change. Only worth calling once
+     * the {@link #getGeneration() generation} has moved on since the statement was handed out.
+     * @param key  Key of the query, see {@link #key(Session, String)}.
+     * @return Newest statement; {@code null} when the query is no longer cached or is being prepared for the first
+     *         time.
+     */
+    synchronized PreparedStatement latest(String key)
+    {
+        CacheEntry entry = statements.get(key);
+
+        return (entry == null) ? null : entry.ready;
+    }
+
+    long getGeneration()
+    {
+        return generation;
+    }
+
+    private void track(final CacheEntry entry, final ListenableFuture<PreparedStatement> future, final boolean refresh)
+    {
+        Futures.addCallback(future, new FutureCallback<PreparedStatement>()
+        {
+            public void onSuccess(PreparedStatement prepared)
+            {
+                synchronized (PreparedStatementCache.this)
+                {
+                    if (entry.discarded || (entry.future != future)) return;
+
+                    entry.ready = prepared;
+                    entry.tables = tables(entry, prepared);
+
+                    if (refresh) generation++;
+                }
+            }
+
+            public void onFailure(Throwable t)
+            {
+                if (refresh)
+                {
+                    logger.log(Level.FINE, String.format("Unable to prepare again after schema change: %s", entry.query), t);
+                }
+                forget(entry.key, future);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Tables a statement uses, as {@code keyspace.table}: those of its bind variables plus those named in its query.
+     */
+    private static Set<String> tables(CacheEntry entry, PreparedStatement prepared)
+    {
+        Set<String> tables = new HashSet<String>();
+
+        for (ColumnDefinitions.Definition variable : prepared.getVariables())
+        {
+            tables.add(variable.getKeyspace() + '.' + variable.getTable());
+        }
+
+        Matcher matcher = TABLE.matcher(entry.query);
+        while (matcher.find())
+        {
+            tables.add((matcher.group(2) == null)
+                    ? entry.keyspace + '.' + ClusterReference.keyspaceName(matcher.group(1))
+                    : ClusterReference.keyspaceName(matcher.group(1)) + '.' + ClusterReference.keyspaceName(matcher.group(2)));
+        }
+
+        return tables;
+    }
+
+    /**
+     * Key a query is cached under: the keyspace the session is logged into, which unqualified table names resolve
+     * against, and the normalized query.
+     */
+    static String key(Session session, String query)
+    {
+        return StringUtils.defaultString(session.getLoggedKeyspace()) + '\u0000' + normalize(query);
+    }
+
+    /**
+     * Reduce a query to its tokens for use as a key: runs of whitespace become a single space and trailing semicolons
+     * are dropped. Quoted strings, quoted names and comments are kept as they are, so queries that mean different
+     * things never share a key.
+     */
+    static String normalize(String query)
+    {
+        StringBuilder normalized = new StringBuilder(query.length());
+        boolean space = false;
+        int length = query.length();
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = query.charAt(i);
+
+            if (Character.isWhitespace(c))
+            {
+                space = true;
+                continue;
+            }
+
+            int last = normalized.length() - 1;
+            if (space && (last >= 0) && (normalized.charAt(last) != '\n')) normalized.append(' ');
+            space = false;
+
+            int end = i + 1;
+            char next = (end < length) ? query.charAt(end) : 0;
+
+            if ((c == '\'') || (c == '"'))
+            {
+                // a doubled quote inside ends one run and starts the next, which is copied all the same
+                end = query.indexOf(c, end);
+                end = (end < 0) ? length : end + 1;
+            }
+            else if ((c == '$') && (next == '$'))
+            {
+                end = query.indexOf("$$", end + 1);
+                end = (end < 0) ? length : end + 2;
+            }
+            else if (((c == '-') && (next == '-')) || ((c == '/') && (next == '/')))
+            {
+                // the line break ends the comment, so it is kept
+                end = query.indexOf('\n', end);
+                end = (end < 0) ? length : end + 1;
+            }
+            else if ((c == '/') && (next == '*'))
+            {
+                end = query.indexOf("*/", end + 1);
+                end = (end < 0) ? length : end + 2;
+            }
+
+            normalized.append(query, i, end);
+            i = end - 1;
+        }
+
+        int last = normalized.length();
+        while ((last > 0) && (normalized.charAt(last - 1) == ';' || normalized.charAt(last - 1) == ' '))
+        {
+            last--;
+        }
+        normalized.setLength(last);
+
+        return normalized.toString();
+    }
+
+    private synchronized void forget(String key, ListenableFuture<PreparedStatement> future)
+    {
+        CacheEntry entry = statements.get(key);
+
+        if ((entry != null) && (entry.future == future))
+        {
+            statements.remove(key);
+            discard(entry);
+        }
+    }
+
+    private void discard(CacheEntry entry)
+    {
+        entry.discarded = true;
+    }
+
+    /**
+     * Forget every cached statement, as when the cluster they were prepared on is closed.
+     */
+    synchronized void clear()
+    {
+        for (CacheEntry entry : statements.values())
+        {
+            entry.discarded = true;
+        }
+        statements.clear();
+    }
+
+    synchronized int size()
+    {
+        return statements.size();
+    }
+
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    synchronized long getHits()
+    {
+        return hits;
+    }
+
+    synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    /**
+     * Describe the cache counters as client info properties.
+     * @param clientInfo  Client info to update.
+     */
+    synchronized void describe(Properties clientInfo)
+    {
+        clientInfo.setProperty(INFO_PREPARED_HITS, "" + hits);
+        clientInfo.setProperty(INFO_PREPARED_MISSES, "" + misses);
+        clientInfo.setProperty(INFO_PREPARED_EVICTIONS, "" + evictions);
+        clientInfo.setProperty(INFO_PREPARED_INVALIDATIONS, "" + invalidations);
+        clientInfo.setProperty(INFO_PREPARED_SIZE, "" + statements.size());
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("PreparedStatementCache[size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d, invalidations=%d]",
+                statements.size(), capacity, hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * A cached query; guarded by the cache.
+     */
+    private static class CacheEntry
+    {
+        final String key;
+
+        final Session session;
+
+        final String query;
+
+        /**
+         * Keyspace unqualified table names resolve against.
+         */
+        final String keyspace;
+
+        /**
+         * Latest prepare request for the query.
+         */
+        ListenableFuture<PreparedStatement> future;
+
+        /**
+         * Latest statement prepared for the query, handed out while a newer one is being prepared.
+         */
+        PreparedStatement ready;
+
+        /**
+         * Tables used by the query as {@code keyspace.table}; empty until it is first prepared.
+         */
+        Set<String> tables = new HashSet<String>();
+
+        /**
+         * Number of times the query was prepared again.
+         */
+        int version;
+
+        boolean discarded;
+
+        CacheEntry(String key, Session session, String query, ListenableFuture<PreparedStatement> future)
+        {
+            this.key = key;
+            this.session = session;
+            this.query = query;
+            this.keyspace = StringUtils.defaultString(session.getLoggedKeyspace());
+            this.future = future;
+        }
+
+        boolean uses(String keyspace, String table)
+        {
+            if (tables.isEmpty()) return keyspace.equals(this.keyspace);
+            if (table != null) return tables.contains(keyspace + '.' + table);
+
+            for (String used : tables)
+            {
+                if (used.startsWith(keyspace + '.')) return true;
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Probe the seed hosts from a JDBC URL in parallel before the native cluster is built. Every seed is resolved and
+ * connected to concurrently with a bounded timeout, and the seeds that respond within it are used as contact points,
+ * so that the native driver never waits on a dead seed. A timeout of zero waits for every seed to answer or fail.
+ */
+class SeedProbe
+{
+
+    private static final Logger logger = Utils.getLogger();
+
+    static final String INFO_SEEDS_RESPONDED = "SeedsResponded";
+    static final String INFO_SEEDS_FAILED = "SeedsFailed";
+    static final String INFO_SEEDS_PENDING = "SeedsPending";
+
+    private final String[] hosts;
+
+    private final int port;
+
+    private final int timeoutMillis;
+
+    /**
+     * Seeds that accepted a connection, in the order they responded, with the time it took in milliseconds.
+     */
+    private final Map<String, Long> responded = new LinkedHashMap<String, Long>();
+
+    private final Map<String, InetAddress> addresses = new LinkedHashMap<String, InetAddress>();
+
+    private final List<String> failed = new ArrayList<String>();
+
+    private final List<String> pending = new ArrayList<String>();
+
+    SeedProbe(String[] hosts, int port, int timeoutMillis)
+    {
+        this.hosts = hosts;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Probe all seeds concurrently; returns once every seed has responded or failed, or the timeout expires,
+     * whichever comes first.
+     * @return This probe, with results populated.
+     */
+    SeedProbe probe()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, hosts.length), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "twig-seed-probe");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+        Map<Future<Result>, String> futures = new LinkedHashMap<Future<Result>, String>();
+
+        try
+        {
+            for (final String host : hosts)
+            {
+                futures.put(completion.submit(new Callable<Result>()
+                {
+                    @Override
+                    public Result call() throws Exception
+                    {
+                        return connect(host);
+                    }
+                }), host);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            int remaining = futures.size();
+
+            // collect seeds as they answer; those still connecting when the timeout expires are left pending
+            while (remaining > 0)
+            {
+                Future<Result> done;
+                if (timeoutMillis == 0)
+                {
+                    done = completion.take();
+                }
+                else
+                {
+                    long wait = deadline - System.nanoTime();
+                    done = (wait > 0) ? completion.poll(wait, TimeUnit.NANOSECONDS) : null;
+                }
+                if (done == null) break;
+
+                collect(done, futures.remove(done));
+                remaining--;
+            }
+        }
+        catch (InterruptedException ix)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        pending.addAll(futures.values());
+
+        logger.log(Level.INFO, String.format("Seeds responded: %s; failed: %s; pending: %s", responded, failed, pending));
+
+        return this;
+    }
+
+    private void collect(Future<Result> future, String host)
+    {
+        try
+        {
+            Result result = future.get();
+            responded.put(host, result.millis);
+            addresses.put(host, result.address);
+        }
+        catch (ExecutionException ex)
+        {
+            logger.log(Level.FINE, "Seed not available: " + host, ex.getCause());
+            failed.add(host);
+        }
+        catch (InterruptedException ix)
+        {
+            Thread.currentThread().interrupt();
+            pending.add(host);
+        }
+    }
+
+    private Result connect(String host) throws IOException
+    {
+        long start = System.nanoTime();
+
+        InetAddress address = InetAddress.getByName(host);
+        Socket socket = new Socket();
+
+        try
+        {
+            socket.connect(new InetSocketAddress(address, port), timeoutMillis);
+        }
+        finally
+        {
+            socket.close();
+        }
+
+        return new Result(address, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Addresses of the seeds that responded, in the order they responded.
+     */
+    List<InetAddress> getContactPoints()
+    {
+        return new ArrayList<InetAddress>(addresses.values());
+    }
+
+    Map<String, Long> getResponded()
+    {
+        return responded;
+    }
+
+    List<String> getFailed()
+    {
+        return failed;
+    }
+
+    List<String> getPending()
+    {
+        return pending;
+    }
+
+    /**
+     * Describe the probe results as client info properties; responders are listed as {@code host:millis}.
+     * @param clientInfo  Client info to update.
+     */
+    void describe(Properties clientInfo)
+    {
+        List<String> times = new ArrayList<String>();
+        for (Map.Entry<String, Long> entry : responded.entrySet())
+        {
+            times.add(entry.getKey() + ":" + entry.getValue() + "ms");
+        }
+
+        clientInfo.setProperty(INFO_SEEDS_RESPONDED, StringUtils.join(times, ","));
+        clientInfo.setProperty(INFO_SEEDS_FAILED, StringUtils.join(failed, ","));
+        clientInfo.setProperty(INFO_SEEDS_PENDING, StringUtils.join(pending, ","));
+    }
+
+    private static class Result
+    {
+        final InetAddress address;
+        final long millis;
+
+        Result(InetAddress address, long millis)
+        {
+            this.address = address;
+            this.millis = millis;
+        }
+    }
+
+}
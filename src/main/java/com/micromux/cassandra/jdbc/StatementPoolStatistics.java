@@ -0,0 +1,71 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the prepared statement pooling done by the connections of one {@link PooledCassandraDataSource}.
+ */
+class StatementPoolStatistics
+{
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	void hit()
+	{
+		hits.incrementAndGet();
+	}
+
+	void miss()
+	{
+		misses.incrementAndGet();
+	}
+
+	void evicted()
+	{
+		evictions.incrementAndGet();
+	}
+
+	long getHits()
+	{
+		return hits.get();
+	}
+
+	long getMisses()
+	{
+		return misses.get();
+	}
+
+	long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("StatementPoolStatistics[hits=%d, misses=%d, evictions=%d]", getHits(), getMisses(), getEvictions());
+	}
+}
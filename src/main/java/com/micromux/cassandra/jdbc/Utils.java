@@ -29,8 +29,10 @@ import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.sql.SQLSyntaxErrorException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -44,12 +46,35 @@ class Utils
 {
     public static final String PROTOCOL = "jdbc:cassandra:";
     public static final int DEFAULT_PORT = 9042;
+    public static final String HOST_SEPARATOR = "--";
 
     public static final String KEY_VERSION = "version";
     public static final String KEY_CONSISTENCY = "consistency";
     public static final String KEY_PRIMARY_DC = "primarydc";
     public static final String KEY_BACKUP_DC = "backupdc";
     public static final String KEY_CONNECTION_RETRIES = "retries";
+    public static final String KEY_CONNECT_TIMEOUT = "connecttimeout";
+    public static final String KEY_LAZY_CONNECT = "lazyconnect";
+    public static final String KEY_SESSION_IDLE_TIMEOUT = "sessionidletimeout";
+    public static final String KEY_READ_TIMEOUT = "readtimeout";
+    public static final String KEY_TCP_NO_DELAY = "tcpnodelay";
+    public static final String KEY_CORE_CONNECTIONS = "coreconnectionsperhost";
+    public static final String KEY_MAX_CONNECTIONS = "maxconnectionsperhost";
+    public static final String KEY_MAX_REQUESTS = "maxrequestsperconnection";
+    public static final String KEY_HEARTBEAT_INTERVAL = "heartbeatinterval";
+    public static final String KEY_COMPRESSION = "compression";
+    public static final String KEY_SPECULATIVE_DELAY = "speculativedelay";
+    public static final String KEY_SPECULATIVE_PERCENTILE = "speculativepercentile";
+    public static final String KEY_SPECULATIVE_EXECUTIONS = "speculativeexecutions";
+    public static final String KEY_VALIDATION_INTERVAL = "validationinterval";
+    public static final String KEY_PREFETCH_THRESHOLD = "prefetchthreshold";
+    public static final String KEY_MAX_IN_FLIGHT = "maxinflight";
+    public static final String KEY_BATCH_TYPE = "batchtype";
+    public static final String KEY_MAX_BATCH_STATEMENTS = "maxbatchstatements";
+    public static final String KEY_MAX_BATCH_BYTES = "maxbatchbytes";
+    public static final String KEY_BATCH_MODE = "batchmode";
+    public static final String KEY_PROFILE_PREFIX = "profile.";
+    public static final String KEY_PREPARED_CACHE_SIZE = "preparedcachesize";
     
     public static final String TAG_USER = "user";
     public static final String TAG_PASSWORD = "password";
@@ -73,14 +98,56 @@ class Utils
     public static final String TAG_BACKUP_DC = "backupDatacenter";
     public static final String TAG_CONNECTION_RETRIES = "retries";
 
+    public static final String TAG_CONNECT_TIMEOUT = "connectTimeout";
+    public static final String TAG_LAZY_CONNECT = "lazyConnect";
+    public static final String TAG_SESSION_IDLE_TIMEOUT = "sessionIdleTimeout";
+    public static final String TAG_READ_TIMEOUT = "readTimeout";
+    public static final String TAG_TCP_NO_DELAY = "tcpNoDelay";
+    public static final String TAG_CORE_CONNECTIONS = "coreConnectionsPerHost";
+    public static final String TAG_MAX_CONNECTIONS = "maxConnectionsPerHost";
+    public static final String TAG_MAX_REQUESTS = "maxRequestsPerConnection";
+    public static final String TAG_HEARTBEAT_INTERVAL = "heartbeatInterval";
+    public static final String TAG_COMPRESSION = "compression";
+    public static final String TAG_SPECULATIVE_DELAY = "speculativeDelay";
+    public static final String TAG_SPECULATIVE_PERCENTILE = "speculativePercentile";
+    public static final String TAG_SPECULATIVE_EXECUTIONS = "speculativeExecutions";
+    public static final String TAG_VALIDATION_INTERVAL = "validationInterval";
+    public static final String TAG_PREFETCH_THRESHOLD = "prefetchThreshold";
+    public static final String TAG_MAX_IN_FLIGHT = "maxInFlight";
+    public static final String TAG_BATCH_TYPE = "batchType";
+    public static final String TAG_MAX_BATCH_STATEMENTS = "maxBatchStatements";
+    public static final String TAG_MAX_BATCH_BYTES = "maxBatchBytes";
+    public static final String TAG_BATCH_MODE = "batchMode";
+    public static final String TAG_PROFILE_PREFIX = "profile.";
+    public static final String TAG_PREPARED_CACHE_SIZE = "preparedCacheSize";
+
     protected static final String WAS_CLOSED_CON = "method was called on a closed Connection";
     protected static final String WAS_CLOSED_STMT = "method was called on a closed Statement";
     protected static final String WAS_CLOSED_RSLT = "method was called on a closed ResultSet";
     protected static final String NO_INTERFACE = "no object was found that matched the provided interface: %s";
     protected static final String NO_TRANSACTIONS = "the Cassandra implementation does not support transactions";
     protected static final String NO_SERVER = "no Cassandra server is available";
+    protected static final String NO_SEEDS = "no seed host responded within %d ms (failed: %s, pending: %s)";
     protected static final String ALWAYS_AUTOCOMMIT = "the Cassandra implementation is always in auto-commit mode";
     protected static final String BAD_TIMEOUT = "the timeout value was less than zero";
+    protected static final String QUERY_TIMED_OUT = "the query did not complete within its timeout of %d seconds";
+    protected static final String QUERY_CANCELLED = "the query was cancelled";
+    protected static final String NO_IN_FLIGHT_PERMIT = "no request in flight on the connection completed within %d ms, so the request was not sent";
+    protected static final String BAD_PAGING_STATE = "the paging state is not one returned by this driver : %s";
+    protected static final String PAGING_STATE_MISMATCH = "the paging state was returned for a different query or parameters";
+    protected static final String READ_TIMED_OUT = "the request timed out waiting for the cluster to respond";
+    protected static final String BAD_COMPRESSION = "compression '%s' is not one of lz4, snappy or none";
+    protected static final String BAD_BATCH_TYPE = "batch type '%s' is not one of unlogged, logged or counter";
+    protected static final String BAD_BATCH_MODE = "batch mode '%s' is not one of batch or pipelined";
+    protected static final String BAD_PROFILE = "execution profile '%s' has an invalid setting : %s";
+    protected static final String NO_RESOURCE = "classpath resource '%s' could not be read";
+    protected static final String NO_PROFILE = "no execution profile named '%s' is defined for the connection";
+    protected static final String BATCH_NOT_APPLIED = "the conditions of the batch were not met, so it was not applied";
+    protected static final String NO_OPTIONAL_CLASS = "%s requires %s on the classpath";
+    protected static final String BAD_SPECULATION = "speculativeDelay and speculativePercentile may not both be set";
+    protected static final String BAD_PERCENTILE = "speculativePercentile must be greater than 0 and less than 100 but was '%s'";
+    protected static final String BAD_NUMBER_PROPERTY = "the '%s' property must be a non-negative integer but was '%s'";
+    protected static final String BAD_POSITIVE_PROPERTY = "the '%s' property must be a positive integer but was '%s'";
     protected static final String SCHEMA_MISMATCH = "schema does not match across nodes, (try again later)";
     protected static final String NOT_SUPPORTED = "the Cassandra implementation does not support this method";
     protected static final String NO_GEN_KEYS = "the Cassandra implementation does not currently support returning generated  keys";
@@ -98,7 +165,11 @@ class Utils
     protected static final String BAD_FETCH_DIR = "fetch direction value of : %s is illegal";
     protected static final String BAD_AUTO_GEN = "auto key generation value of : %s is illegal";
     protected static final String BAD_FETCH_SIZE = "fetch size of : %s rows may not be negative";
+    protected static final String BAD_PREFETCH = "prefetch threshold of : %s rows may not be negative";
+    protected static final String BAD_MAX_ROWS = "max rows of : %s may not be negative";
     protected static final String MUST_BE_POSITIVE = "index must be a positive number less or equal the count of returned columns: %s";
+    protected static final String BAD_PARAMETER_INDEX = "parameter index %d is not between 1 and the %d parameters of the statement";
+    protected static final String PARAMETERS_CHANGED = "the schema change of a table used by the statement changed its parameters from %d to %d; bind them again: %s";
     protected static final String VALID_LABELS = "name provided was not in the list of valid column labels: %s";
     protected static final String NOT_TRANSLATABLE = "column was stored in %s format which is not translatable to %s";
     protected static final String NOT_BOOLEAN = "string value was neither 'true' nor 'false' :  %s";
@@ -185,6 +256,97 @@ class Utils
                 {
                     props.setProperty(TAG_CONNECTION_RETRIES,params.get(KEY_CONNECTION_RETRIES));
                 }
+                if (params.containsKey(KEY_CONNECT_TIMEOUT))
+                {
+                    props.setProperty(TAG_CONNECT_TIMEOUT,params.get(KEY_CONNECT_TIMEOUT));
+                }
+                if (params.containsKey(KEY_LAZY_CONNECT))
+                {
+                    props.setProperty(TAG_LAZY_CONNECT,params.get(KEY_LAZY_CONNECT));
+                }
+                if (params.containsKey(KEY_SESSION_IDLE_TIMEOUT))
+                {
+                    props.setProperty(TAG_SESSION_IDLE_TIMEOUT,params.get(KEY_SESSION_IDLE_TIMEOUT));
+                }
+                if (params.containsKey(KEY_READ_TIMEOUT))
+                {
+                    props.setProperty(TAG_READ_TIMEOUT,params.get(KEY_READ_TIMEOUT));
+                }
+                if (params.containsKey(KEY_TCP_NO_DELAY))
+                {
+                    props.setProperty(TAG_TCP_NO_DELAY,params.get(KEY_TCP_NO_DELAY));
+                }
+                if (params.containsKey(KEY_CORE_CONNECTIONS))
+                {
+                    props.setProperty(TAG_CORE_CONNECTIONS,params.get(KEY_CORE_CONNECTIONS));
+                }
+                if (params.containsKey(KEY_MAX_CONNECTIONS))
+                {
+                    props.setProperty(TAG_MAX_CONNECTIONS,params.get(KEY_MAX_CONNECTIONS));
+                }
+                if (params.containsKey(KEY_MAX_REQUESTS))
+                {
+                    props.setProperty(TAG_MAX_REQUESTS,params.get(KEY_MAX_REQUESTS));
+                }
+                if (params.containsKey(KEY_HEARTBEAT_INTERVAL))
+                {
+                    props.setProperty(TAG_HEARTBEAT_INTERVAL,params.get(KEY_HEARTBEAT_INTERVAL));
+                }
+                if (params.containsKey(KEY_COMPRESSION))
+                {
+                    props.setProperty(TAG_COMPRESSION,params.get(KEY_COMPRESSION));
+                }
+                if (params.containsKey(KEY_SPECULATIVE_DELAY))
+                {
+                    props.setProperty(TAG_SPECULATIVE_DELAY,params.get(KEY_SPECULATIVE_DELAY));
+                }
+                if (params.containsKey(KEY_SPECULATIVE_PERCENTILE))
+                {
+                    props.setProperty(TAG_SPECULATIVE_PERCENTILE,params.get(KEY_SPECULATIVE_PERCENTILE));
+                }
+                if (params.containsKey(KEY_SPECULATIVE_EXECUTIONS))
+                {
+                    props.setProperty(TAG_SPECULATIVE_EXECUTIONS,params.get(KEY_SPECULATIVE_EXECUTIONS));
+                }
+                if (params.containsKey(KEY_VALIDATION_INTERVAL))
+                {
+                    props.setProperty(TAG_VALIDATION_INTERVAL,params.get(KEY_VALIDATION_INTERVAL));
+                }
+                if (params.containsKey(KEY_PREFETCH_THRESHOLD))
+                {
+                    props.setProperty(TAG_PREFETCH_THRESHOLD,params.get(KEY_PREFETCH_THRESHOLD));
+                }
+                if (params.containsKey(KEY_MAX_IN_FLIGHT))
+                {
+                    props.setProperty(TAG_MAX_IN_FLIGHT,params.get(KEY_MAX_IN_FLIGHT));
+                }
+                if (params.containsKey(KEY_BATCH_TYPE))
+                {
+                    props.setProperty(TAG_BATCH_TYPE,params.get(KEY_BATCH_TYPE));
+                }
+                if (params.containsKey(KEY_MAX_BATCH_STATEMENTS))
+                {
+                    props.setProperty(TAG_MAX_BATCH_STATEMENTS,params.get(KEY_MAX_BATCH_STATEMENTS));
+                }
+                if (params.containsKey(KEY_MAX_BATCH_BYTES))
+                {
+                    props.setProperty(TAG_MAX_BATCH_BYTES,params.get(KEY_MAX_BATCH_BYTES));
+                }
+                if (params.containsKey(KEY_BATCH_MODE))
+                {
+                    props.setProperty(TAG_BATCH_MODE,params.get(KEY_BATCH_MODE));
+                }
+                if (params.containsKey(KEY_PREPARED_CACHE_SIZE))
+                {
+                    props.setProperty(TAG_PREPARED_CACHE_SIZE,params.get(KEY_PREPARED_CACHE_SIZE));
+                }
+                for (Map.Entry<String,String> param : params.entrySet())
+                {
+                    if (param.getKey().startsWith(KEY_PROFILE_PREFIX))
+                    {
+                        props.setProperty(TAG_PROFILE_PREFIX + param.getKey().substring(KEY_PROFILE_PREFIX.length()), param.getValue());
+                    }
+                }
                 if (params.containsKey(TAG_TRUST_STORE)) {
 
                     props.setProperty(TAG_TRUST_STORE, params.get(TAG_TRUST_STORE));
@@ -288,6 +450,27 @@ class Utils
         return params;
     }
 
+    /**
+     * Split the server name from a JDBC URL into the individual seed hosts; multiple seeds are separated with
+     * {@link #HOST_SEPARATOR}, as in {@code jdbc:cassandra://host1--host2--host3:9042/keyspace}.
+     * @param serverName  Server name from the URL.
+     * @return Seed hosts, never {@code null}.
+     */
+    public static String[] splitHosts(String serverName)
+    {
+        List<String> hosts = new ArrayList<String>();
+
+        if (serverName != null)
+        {
+            for (String host : serverName.split(HOST_SEPARATOR))
+            {
+                if (!host.trim().isEmpty()) hosts.add(host.trim());
+            }
+        }
+
+        return hosts.toArray(new String[hosts.size()]);
+    }
+
     /**
      * Global logger for this driver.
      * @return  Global logger for the driver.
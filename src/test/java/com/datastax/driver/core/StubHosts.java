@@ -0,0 +1,65 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.datastax.driver.core;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Hosts for load balancing tests. Only the native driver creates hosts, so this lives in its package; the cluster
+ * they belong to is never initialized and need not point at a running server.
+ */
+public class StubHosts
+{
+
+    private StubHosts()
+    {
+    }
+
+    /**
+     * @return A cluster that is never connected, to own stub hosts and initialize policies with. Its metadata is
+     *         empty rather than fetched from a server, as the native cluster would on first access.
+     */
+    public static Cluster cluster()
+    {
+        return new Cluster(Cluster.builder().addContactPointsWithPorts(new InetSocketAddress("127.0.0.1", 9042)))
+        {
+            private final Metadata metadata = new Metadata(manager);
+
+            @Override
+            public Metadata getMetadata()
+            {
+                return metadata;
+            }
+        };
+    }
+
+    /**
+     * @return A host of the cluster in a datacenter, marked up.
+     */
+    public static Host host(Cluster cluster, String address, String datacenter)
+    {
+        Host host = new Host(new InetSocketAddress(address, 9042), new ConvictionPolicy.DefaultConvictionPolicy.Factory(), cluster.manager);
+        host.setLocationInfo(datacenter, "rack1");
+        host.setUp();
+        return host;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncQueryTest extends BaseDriverTest
+{
+    private static final int KEYS = 100;
+
+    @BeforeClass
+    public static void setUpKeyValues() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE key_values (k int PRIMARY KEY, v text);");
+        stmt.close();
+    }
+
+    @Test
+    public void testFanOut() throws Exception
+    {
+        CassandraConnection connection = (CassandraConnection) DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&maxInFlight=8");
+
+        // the writes of one statement overlap; binding the next row does not disturb those already sent
+        CassandraPreparedStatementExtras insert = connection.prepareStatement("INSERT INTO key_values (k, v) VALUES (?, ?);")
+                .unwrap(CassandraPreparedStatementExtras.class);
+        List<ListenableFuture<Integer>> writes = new ArrayList<ListenableFuture<Integer>>();
+        for (int i = 0; i < KEYS; i++)
+        {
+            insert.setInt(1, i);
+            insert.setString(2, "value-" + i);
+            writes.add(insert.executeUpdateAsync());
+        }
+        for (Integer count : Futures.allAsList(writes).get(30, TimeUnit.SECONDS))
+        {
+            assertEquals(1, count.intValue());
+        }
+
+        CassandraPreparedStatementExtras select = connection.prepareStatement("SELECT v FROM key_values WHERE k = ?;")
+                .unwrap(CassandraPreparedStatementExtras.class);
+        List<ListenableFuture<ResultSet>> reads = new ArrayList<ListenableFuture<ResultSet>>();
+        for (int i = 0; i < KEYS; i++)
+        {
+            select.setInt(1, i);
+            reads.add(select.executeQueryAsync());
+        }
+
+        List<ResultSet> results = Futures.allAsList(reads).get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < KEYS; i++)
+        {
+            assertTrue(results.get(i).next());
+            assertEquals("value-" + i, results.get(i).getString(1));
+        }
+
+        // every permit is given back as its request completes
+        assertEquals(8, connection.availableInFlightPermits());
+
+        connection.close();
+    }
+
+    @Test
+    public void testStatementAsync() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        CassandraStatementExtras extras = statementExtras(stmt);
+
+        assertEquals(1, extras.executeUpdateAsync(String.format("INSERT INTO \"%s\".key_values (k, v) VALUES (-1, 'async');", KEYSPACE))
+                .get(30, TimeUnit.SECONDS).intValue());
+
+        ResultSet result = extras.executeQueryAsync(String.format("SELECT v FROM \"%s\".key_values WHERE k = -1;", KEYSPACE))
+                .get(30, TimeUnit.SECONDS);
+        assertTrue(result.next());
+        assertEquals("async", result.getString(1));
+
+        stmt.close();
+    }
+
+    @Test
+    public void testSettingsAtSubmit() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        CassandraStatementExtras extras = statementExtras(stmt);
+
+        for (int i = 200; i < 205; i++)
+        {
+            stmt.execute(String.format("INSERT INTO \"%s\".key_values (k, v) VALUES (%d, 'limited');", KEYSPACE, i));
+        }
+
+        // the result reads with the settings of the statement when it was sent, whatever they are by the time it arrives
+        stmt.setMaxRows(2);
+        stmt.setFetchSize(3);
+        ListenableFuture<ResultSet> future = extras.executeQueryAsync(String.format(
+                "SELECT v FROM \"%s\".key_values WHERE k IN (200, 201, 202, 203, 204);", KEYSPACE));
+        stmt.setMaxRows(0);
+        stmt.setFetchSize(1);
+
+        ResultSet result = future.get(30, TimeUnit.SECONDS);
+        assertEquals(3, result.getFetchSize());
+        int rows = 0;
+        while (result.next()) rows++;
+        assertEquals(2, rows);
+
+        stmt.close();
+    }
+
+}
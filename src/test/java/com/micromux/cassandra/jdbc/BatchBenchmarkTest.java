@@ -0,0 +1,102 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Time to write rows through {@code executeBatch} with logged and unlogged native batches, and pipelined as
+ * separate requests. Only runs when the {@code benchmark} system property is {@code true}; see
+ * {@link ThroughputBenchmarkTest}.
+ */
+public class BatchBenchmarkTest extends BaseDriverTest
+{
+    private static final int ROWS = Integer.getInteger("benchmarkRows", 2000);
+    private static final int PARTITIONS = 20;
+    private static final int ROUNDS = 5;
+
+    @BeforeClass
+    public static void setUpBatchTable() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE batch_bench (k int, c int, v text, PRIMARY KEY (k, c));");
+        stmt.close();
+    }
+
+    @Test
+    public void batchModes() throws Exception
+    {
+        report("logged", "batchType=logged");
+        report("unlogged, grouped by partition", "batchType=unlogged");
+        report("pipelined", "batchMode=pipelined");
+        report("pipelined, maxInFlight=32", "batchMode=pipelined&maxInFlight=32");
+    }
+
+    private static void report(String label, String options) throws Exception
+    {
+        Connection connection = DriverManager.getConnection(String.format("%s&%s", createConnectionUrl(KEYSPACE), options));
+
+        try
+        {
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO batch_bench (k, c, v) VALUES (?, ?, ?);");
+            write(insert);
+
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++)
+            {
+                write(insert);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+            System.out.println(String.format("%-40s %10.2f ms/batch %10d rows/s", label, millis, (long) (ROWS * 1000 / millis)));
+            insert.close();
+        }
+        finally
+        {
+            connection.close();
+        }
+    }
+
+    private static void write(PreparedStatement insert) throws Exception
+    {
+        for (int i = 0; i < ROWS; i++)
+        {
+            insert.setInt(1, i % PARTITIONS);
+            insert.setInt(2, i);
+            insert.setString(3, "value-" + i);
+            insert.addBatch();
+        }
+        assertEquals(ROWS, insert.executeBatch().length);
+    }
+
+}
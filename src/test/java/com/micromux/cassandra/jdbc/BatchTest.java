@@ -0,0 +1,312 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.BatchStatement;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+public class BatchTest extends BaseDriverTest
+{
+
+    @BeforeClass
+    public static void setUpBatchTable() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE batch_rows (k int, c int, v text, PRIMARY KEY (k, c));");
+        stmt.close();
+    }
+
+    @Test
+    public void testStatementBatch() throws Exception
+    {
+        Connection connection = DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&maxBatchStatements=10");
+        Statement stmt = connection.createStatement();
+        assertEquals(BatchStatement.Type.UNLOGGED, statementExtras(stmt).getBatchType());
+
+        for (int i = 0; i < 25; i++)
+        {
+            stmt.addBatch(String.format("INSERT INTO batch_rows (k, c, v) VALUES (1, %d, 'value-%d');", i, i));
+        }
+
+        int[] counts = stmt.executeBatch();
+        assertEquals(25, counts.length);
+        for (int count : counts)
+        {
+            assertEquals(Statement.SUCCESS_NO_INFO, count);
+        }
+
+        assertEquals(25, count(stmt, 1));
+
+        // the batch is emptied by executing it
+        assertEquals(0, stmt.executeBatch().length);
+
+        connection.close();
+    }
+
+    @Test
+    public void testLoggedBatch() throws Exception
+    {
+        Connection connection = DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&batchType=logged");
+        Statement stmt = connection.createStatement();
+        assertEquals(BatchStatement.Type.LOGGED, statementExtras(stmt).getBatchType());
+
+        stmt.addBatch("INSERT INTO batch_rows (k, c, v) VALUES (2, 1, 'one');");
+        stmt.addBatch("INSERT INTO batch_rows (k, c, v) VALUES (3, 1, 'one');");
+        assertEquals(2, stmt.executeBatch().length);
+        assertEquals(1, count(stmt, 2));
+        assertEquals(1, count(stmt, 3));
+
+        stmt.addBatch("INSERT INTO batch_rows (k, c, v) VALUES (4, 1, 'one');");
+        stmt.clearBatch();
+        assertEquals(0, stmt.executeBatch().length);
+        assertEquals(0, count(stmt, 4));
+
+        connection.close();
+    }
+
+    @Test
+    public void testSplitFailure() throws Exception
+    {
+        // every statement is larger than the limit, so each one is sent in a batch of its own
+        Connection connection = DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&maxBatchBytes=1");
+        Statement stmt = connection.createStatement();
+
+        for (int i = 0; i < 3; i++)
+        {
+            stmt.addBatch(String.format("INSERT INTO batch_rows (k, c, v) VALUES (5, %d, 'ok');", i));
+        }
+        stmt.addBatch("INSERT INTO no_such_table (k, c, v) VALUES (5, 3, 'fails');");
+        stmt.addBatch("INSERT INTO batch_rows (k, c, v) VALUES (5, 4, 'never sent');");
+
+        try
+        {
+            stmt.executeBatch();
+            fail("batch with a bad statement succeeded");
+        }
+        catch (BatchUpdateException e)
+        {
+            // the batches before the failure were applied
+            assertEquals(3, e.getUpdateCounts().length);
+        }
+        assertEquals(3, count(stmt, 5));
+
+        connection.close();
+    }
+
+    @Test
+    public void testPreparedBatch() throws Exception
+    {
+        PreparedStatement insert = con.prepareStatement(String.format("INSERT INTO \"%s\".batch_rows (k, c, v) VALUES (?, ?, ?);", KEYSPACE));
+
+        // rows of three partitions, interleaved as a bulk writer would produce them
+        for (int i = 0; i < 60; i++)
+        {
+            insert.setInt(1, 10 + i % 3);
+            insert.setInt(2, i);
+            insert.setString(3, "value-" + i);
+            insert.addBatch();
+        }
+
+        int[] counts = insert.executeBatch();
+        assertEquals(60, counts.length);
+        for (int count : counts)
+        {
+            assertEquals(Statement.SUCCESS_NO_INFO, count);
+        }
+
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        assertEquals(20, count(stmt, 10));
+        assertEquals(20, count(stmt, 11));
+        assertEquals(20, count(stmt, 12));
+
+        // logged batches are sent as they were queued
+        statementExtras(insert).setBatchType(BatchStatement.Type.LOGGED);
+        insert.setInt(1, 13);
+        insert.setInt(2, 0);
+        insert.addBatch();
+        insert.setInt(1, 14);
+        insert.addBatch();
+        assertEquals(2, insert.executeBatch().length);
+        assertEquals(1, count(stmt, 13));
+        assertEquals(1, count(stmt, 14));
+
+        insert.close();
+    }
+
+    @Test
+    public void testPartitionFailure() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("INSERT INTO batch_rows (k, c, v) VALUES (21, 0, 'existing');");
+
+        // conditional batches must stay within a partition, so this only works when rows are grouped by partition
+        PreparedStatement insert = con.prepareStatement("INSERT INTO batch_rows (k, c, v) VALUES (?, ?, 'new') IF NOT EXISTS;");
+        for (int i = 0; i < 6; i++)
+        {
+            insert.setInt(1, 20 + i % 2);
+            insert.setInt(2, i / 2);
+            insert.addBatch();
+        }
+
+        try
+        {
+            insert.executeBatch();
+            fail("conditional batch on an existing row was applied");
+        }
+        catch (BatchUpdateException e)
+        {
+            // only the partition holding the existing row failed
+            int[] counts = e.getUpdateCounts();
+            assertEquals(6, counts.length);
+            for (int i = 0; i < 6; i++)
+            {
+                assertEquals((i % 2 == 0) ? Statement.SUCCESS_NO_INFO : Statement.EXECUTE_FAILED, counts[i]);
+            }
+        }
+
+        assertEquals(3, count(stmt, 20));
+        assertEquals(1, count(stmt, 21));
+
+        insert.close();
+    }
+
+    @Test
+    public void testPipelinedBatch() throws Exception
+    {
+        Connection connection = DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&batchMode=pipelined&maxInFlight=4");
+        Statement stmt = connection.createStatement();
+
+        for (int i = 0; i < 20; i++)
+        {
+            stmt.addBatch(String.format("INSERT INTO batch_rows (k, c, v) VALUES (30, %d, 'ok');", i));
+        }
+        stmt.addBatch("INSERT INTO no_such_table (k, c, v) VALUES (30, 20, 'fails');");
+        stmt.addBatch("INSERT INTO batch_rows (k, c, v) VALUES (30, 21, 'ok');");
+
+        try
+        {
+            stmt.executeBatch();
+            fail("batch with a bad statement succeeded");
+        }
+        catch (BatchUpdateException e)
+        {
+            // every statement is sent on its own, so only the bad one fails
+            int[] counts = e.getUpdateCounts();
+            assertEquals(22, counts.length);
+            for (int i = 0; i < 22; i++)
+            {
+                assertEquals((i == 20) ? Statement.EXECUTE_FAILED : Statement.SUCCESS_NO_INFO, counts[i]);
+            }
+        }
+        assertEquals(21, count(stmt, 30));
+
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO batch_rows (k, c, v) VALUES (31, ?, 'ok');");
+        for (int i = 0; i < 20; i++)
+        {
+            insert.setInt(1, i);
+            insert.addBatch();
+        }
+        assertEquals(20, insert.executeBatch().length);
+        assertEquals(20, count(stmt, 31));
+
+        connection.close();
+    }
+
+    @Test
+    public void testBatchWithoutPermits() throws Exception
+    {
+        for (String mode : new String[] {"pipelined", "batch"})
+        {
+            CassandraConnection connection = (CassandraConnection) DriverManager.getConnection(
+                    createConnectionUrl(KEYSPACE) + "&maxInFlight=1&batchMode=" + mode);
+            Semaphore permits = connection.getInFlightPermits();
+
+            // partitions are sent as separate requests, each of which needs a permit
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO batch_rows (k, c, v) VALUES (?, 0, 'ok');");
+            insert.setQueryTimeout(1);
+            for (int i = 0; i < 3; i++)
+            {
+                insert.setInt(1, 40 + i);
+                insert.addBatch();
+            }
+
+            permits.acquire();
+            try
+            {
+                insert.executeBatch();
+                fail("batch sent without a permit");
+            }
+            catch (BatchUpdateException e)
+            {
+                assertTrue(e.getCause() instanceof SQLTransientException);
+                assertArrayEquals(new int[] {Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED},
+                        e.getUpdateCounts());
+            }
+            finally
+            {
+                permits.release();
+            }
+
+            // the permits of the requests that were sent are all given back
+            assertEquals(1, permits.availablePermits());
+            assertEquals(0, count(connection.createStatement(), 40));
+
+            connection.close();
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void testBadBatchMode() throws Exception
+    {
+        DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&batchMode=sometimes");
+    }
+
+    @Test(expected = SQLException.class)
+    public void testBadBatchType() throws Exception
+    {
+        DriverManager.getConnection(createConnectionUrl(KEYSPACE) + "&batchType=eventually");
+    }
+
+    private static int count(Statement stmt, int key) throws Exception
+    {
+        ResultSet result = stmt.executeQuery(String.format("SELECT c FROM batch_rows WHERE k = %d;", key));
+        int rows = 0;
+        while (result.next()) rows++;
+        return rows;
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class ClusterRegistryTest extends BaseDriverTest
+{
+
+    @Test
+    public void testSharedCluster() throws Exception
+    {
+        int clusters = ClusterRegistry.size();
+
+        CassandraConnection first = (CassandraConnection) DriverManager.getConnection(createConnectionUrl(SYSTEM));
+        CassandraConnection second = (CassandraConnection) DriverManager.getConnection(createConnectionUrl(SYSTEM));
+
+        // the shared cluster is the one already opened by the base test
+        assertSame(first.getCluster(), second.getCluster());
+        assertEquals(clusters, ClusterRegistry.size());
+
+        // the seeds used to bootstrap the shared cluster are published as client info
+        assertTrue(second.getClientInfo(SeedProbe.INFO_SEEDS_RESPONDED).startsWith(HOST + ":"));
+
+        // closing one connection must not affect the other
+        first.close();
+        assertTrue(first.isClosed());
+        assertTrue(second.isValid(3));
+
+        Statement statement = second.createStatement();
+        ResultSet result = statement.executeQuery("SELECT release_version FROM system.local;");
+        assertTrue(result.next());
+
+        second.close();
+        assertTrue(con.isValid(3));
+    }
+
+    @Test
+    public void testUseIsolatedPerConnection() throws Exception
+    {
+        CassandraConnection first = (CassandraConnection) DriverManager.getConnection(createConnectionUrl(SYSTEM));
+        CassandraConnection second = (CassandraConnection) DriverManager.getConnection(createConnectionUrl(SYSTEM));
+
+        first.createStatement().execute(String.format("USE \"%s\";", KEYSPACE));
+
+        assertEquals(KEYSPACE, first.getSchema());
+        assertEquals(SYSTEM, second.getSchema());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testSetSchemaSwapsSession() throws Exception
+    {
+        // an idle timeout of zero closes sessions as soon as no connection uses them
+        String url = createConnectionUrl(SYSTEM) + "&sessionIdleTimeout=0";
+        CassandraConnection first = (CassandraConnection) DriverManager.getConnection(url);
+        CassandraConnection second = (CassandraConnection) DriverManager.getConnection(url);
+        ClusterReference reference = first.getClusterReference();
+
+        assertEquals(1, reference.getSessionCount());
+
+        first.setSchema(KEYSPACE);
+        assertEquals(KEYSPACE, first.getSchema());
+        assertEquals(SYSTEM, second.getSchema());
+        assertEquals(2, reference.getSessionCount());
+
+        // the system session is no longer used by anyone
+        second.setSchema(KEYSPACE);
+        assertEquals(KEYSPACE, second.getSchema());
+        assertEquals(1, reference.getSessionCount());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testIdleSessionSwept() throws Exception
+    {
+        String url = createConnectionUrl(SYSTEM) + "&sessionIdleTimeout=200";
+        CassandraConnection con = (CassandraConnection) DriverManager.getConnection(url);
+        ClusterReference reference = con.getClusterReference();
+
+        con.setSchema(KEYSPACE);
+        assertEquals(2, reference.getSessionCount());
+
+        // nothing acquires or releases a session from here on
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((reference.getSessionCount() > 1) && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, reference.getSessionCount());
+        assertTrue(con.isValid(3));
+
+        con.close();
+    }
+
+    @Test
+    public void testBadClusterProperties() throws Exception
+    {
+        int clusters = ClusterRegistry.size();
+
+        for (String setting : new String[] {"preparedCacheSize=-1", "preparedCacheSize=many", "sessionIdleTimeout=-5", "sessionIdleTimeout=1.5"})
+        {
+            try
+            {
+                DriverManager.getConnection(createConnectionUrl(SYSTEM) + "&" + setting);
+                fail("accepted " + setting);
+            }
+            catch (SQLException e)
+            {
+                assertTrue(setting, e.getCause() instanceof SQLNonTransientConnectionException);
+            }
+        }
+
+        // nothing is left registered by the failed connections
+        assertEquals(clusters, ClusterRegistry.size());
+    }
+
+    @Test
+    public void testKeyNormalization() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://Node1--node2:9042/ks1");
+        Properties reordered = Utils.parseURL("jdbc:cassandra://node2--node1:9042/ks2");
+        Properties otherUser = Utils.parseURL("jdbc:cassandra://node1--node2:9042/ks1");
+        otherUser.setProperty(Utils.TAG_USER, "JaneDoe");
+
+        assertEquals(ClusterRegistry.createKey(props), ClusterRegistry.createKey(reordered));
+        assertNotEquals(ClusterRegistry.createKey(props), ClusterRegistry.createKey(otherUser));
+
+        assertEquals("testks", ClusterReference.keyspaceName("TestKS"));
+        assertEquals("TestKS", ClusterReference.keyspaceName("\"TestKS\""));
+        assertEquals("", ClusterReference.keyspaceName(null));
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.NettyOptions;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.SocketChannel;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Bytes on the wire and end-to-end latency of a large {@code SELECT} with and without frame compression. Only
+ * runs when the {@code benchmark} system property is {@code true}; see {@link ThroughputBenchmarkTest}.
+ */
+public class CompressionBenchmarkTest extends BaseDriverTest
+{
+    private static final int ROWS = 500;
+    private static final int QUERIES = Integer.getInteger("benchmarkQueries", 50);
+    private static final String SELECT = "SELECT k, v FROM wide_rows;";
+
+    @BeforeClass
+    public static void setUpWideRows() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE wide_rows (k int PRIMARY KEY, v text);");
+
+        // repetitive text, like the descriptive columns that are shipped across zones
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 4096)
+        {
+            text.append("the quick brown fox jumps over the lazy dog ").append(text.length()).append(' ');
+        }
+
+        PreparedStatement insert = con.prepareStatement("INSERT INTO wide_rows (k, v) VALUES (?, ?);");
+        for (int i = 0; i < ROWS; i++)
+        {
+            insert.setInt(1, i);
+            insert.setString(2, text.toString());
+            insert.execute();
+        }
+        insert.close();
+        stmt.close();
+    }
+
+    @Test
+    public void compression() throws Exception
+    {
+        for (String compression : new String[] {"none", "lz4", "snappy"})
+        {
+            String url = String.format("%s&compression=%s", createConnectionUrl(KEYSPACE), compression);
+            System.out.println(String.format("%-8s %12d bytes/query %10.2f ms/query",
+                    compression, bytesPerQuery(url), millisPerQuery(url)));
+        }
+    }
+
+    /**
+     * Bytes received for one query, counted below the frame codec on a cluster configured exactly as the
+     * driver would configure it for this URL.
+     */
+    private static long bytesPerQuery(String url) throws Exception
+    {
+        Properties props = Utils.parseURL(url);
+        final AtomicLong received = new AtomicLong();
+
+        Cluster cluster = CassandraConnection.createClusterBuilder(props, Collections.singletonList(InetAddress.getByName(HOST)))
+                .withNettyOptions(new NettyOptions()
+                {
+                    @Override
+                    public void afterChannelInitialized(SocketChannel channel) throws Exception
+                    {
+                        channel.pipeline().addFirst("byteCounter", new ChannelDuplexHandler()
+                        {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+                            {
+                                if (msg instanceof ByteBuf) received.addAndGet(((ByteBuf) msg).readableBytes());
+                                super.channelRead(ctx, msg);
+                            }
+                        });
+                    }
+                })
+                .build();
+
+        try
+        {
+            Session session = cluster.connect(KEYSPACE);
+            session.execute(SELECT).all();
+
+            received.set(0);
+            for (int i = 0; i < QUERIES; i++)
+            {
+                int rows = 0;
+                for (Row ignored : session.execute(SELECT)) rows++;
+                assertEquals(ROWS, rows);
+            }
+            return received.get() / QUERIES;
+        }
+        finally
+        {
+            cluster.close();
+        }
+    }
+
+    /**
+     * Average time to execute the query and read every row through JDBC.
+     */
+    private static double millisPerQuery(String url) throws Exception
+    {
+        Connection connection = DriverManager.getConnection(url);
+
+        try
+        {
+            Statement statement = connection.createStatement();
+            drain(statement.executeQuery(SELECT));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++)
+            {
+                assertEquals(ROWS, drain(statement.executeQuery(SELECT)));
+            }
+            return (System.nanoTime() - start) / 1e6 / QUERIES;
+        }
+        finally
+        {
+            connection.close();
+        }
+    }
+
+    private static int drain(ResultSet result) throws Exception
+    {
+        int rows = 0;
+        while (result.next())
+        {
+            result.getString(2);
+            rows++;
+        }
+        result.close();
+        return rows;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.SimpleStatement;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class ExecutionProfileTest extends BaseDriverTest
+{
+
+    @Test
+    public void testStatementProfiles() throws Exception
+    {
+        String url = String.format("%s&profile.reads=consistency:ONE,fetchSize:10"
+                + "&profile.writes=consistency:QUORUM,serialConsistency:LOCAL_SERIAL,readTimeout:3000,idempotent:true,retries:1",
+                createConnectionUrl(SYSTEM));
+        Connection connection = DriverManager.getConnection(url);
+        CassandraStatement statement = (CassandraStatement) connection.createStatement();
+        assertNull(statement.getExecutionProfile());
+
+        // reads and writes differ in consistency and page size on the same connection
+        statement.setExecutionProfile("READS");
+        assertEquals("reads", statement.getExecutionProfile());
+        assertEquals(ConsistencyLevel.ONE, statement.getConsistencyLevel());
+        assertEquals(10, statement.getFetchSize());
+        assertFalse(statement.isIdempotent());
+
+        ResultSet result = statement.executeQuery("SELECT release_version FROM system.local;");
+        assertTrue(result.next());
+        result.close();
+
+        CassandraStatement writer = (CassandraStatement) connection.createStatement();
+        writer.setExecutionProfile("writes");
+        assertEquals(ConsistencyLevel.QUORUM, writer.getConsistencyLevel());
+        assertTrue(writer.isIdempotent());
+
+        com.datastax.driver.core.Statement request = writer.configure(new SimpleStatement("SELECT * FROM system.local"));
+        assertEquals(ConsistencyLevel.QUORUM, request.getConsistencyLevel());
+        assertEquals(ConsistencyLevel.LOCAL_SERIAL, request.getSerialConsistencyLevel());
+        assertEquals(3000, request.getReadTimeoutMillis());
+        assertEquals(1, ((BoundedRetryPolicy) request.getRetryPolicy()).getRetries());
+
+        // statement settings still override the profile, and a query timeout wins over its read timeout
+        writer.setConsistencyLevel(ConsistencyLevel.ALL);
+        writer.setQueryTimeout(5);
+        request = writer.configure(new SimpleStatement("SELECT * FROM system.local"));
+        assertEquals(ConsistencyLevel.ALL, request.getConsistencyLevel());
+        assertEquals(5000, request.getReadTimeoutMillis());
+
+        // switching profiles keeps nothing of the previous one
+        statement.setExecutionProfile("writes");
+        assertEquals(0, statement.getFetchSize());
+        assertTrue(statement.isIdempotent());
+        statement.setExecutionProfile("reads");
+        assertFalse(statement.isIdempotent());
+
+        // clearing the profile returns to the connection defaults
+        statement.setExecutionProfile(null);
+        assertNull(statement.getExecutionProfile());
+        assertEquals(ConsistencyLevel.ONE, statement.getConsistencyLevel());
+        assertEquals(0, statement.getFetchSize());
+        assertNull(statement.configure(new SimpleStatement("SELECT * FROM system.local")).getSerialConsistencyLevel());
+
+        // but keeps what was set on the statement itself
+        statement.setFetchSize(7);
+        statement.setIdempotent(true);
+        statement.setExecutionProfile("reads");
+        assertEquals(7, statement.getFetchSize());
+        statement.setExecutionProfile(null);
+        assertEquals(7, statement.getFetchSize());
+        assertTrue(statement.isIdempotent());
+
+        try
+        {
+            statement.setExecutionProfile("analytics");
+            fail("undefined profile accepted");
+        }
+        catch (SQLException e)
+        {
+            assertNull(statement.getExecutionProfile());
+        }
+
+        connection.close();
+    }
+
+}
@@ -21,6 +21,9 @@
 package com.micromux.cassandra.jdbc;
 
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +38,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class JdbcRegressionTest extends BaseDriverTest
 {
@@ -730,6 +734,79 @@ public class JdbcRegressionTest extends BaseDriverTest
     	assert con.isValid(3);
     }
 
+    @Test
+    public void testValidationInterval() throws Exception
+    {
+        String url = createConnectionUrl(KEYSPACE) + "&validationInterval=60000";
+        Connection validated = DriverManager.getConnection(url);
+
+        // a zero timeout waits as long as the socket allows
+        assertTrue(validated.isValid(0));
+        assertTrue(validated.isValid(3));
+
+        try
+        {
+            validated.isValid(-1);
+            fail("negative timeout accepted");
+        }
+        catch (SQLException e)
+        {
+            // expected
+        }
+
+        // a closed connection is never valid, whatever was cached
+        validated.close();
+        assertFalse(validated.isValid(3));
+    }
+
+    @Test
+    public void testLazyConnect() throws Exception
+    {
+        String url = createConnectionUrl(KEYSPACE) + "&lazyConnect=true";
+        Connection lazy = DriverManager.getConnection(url);
+
+        // nothing connected yet
+        assertNull(lazy.getClientInfo(CassandraConnection.INFO_CONNECT_TIME));
+        assertFalse(lazy.isClosed());
+
+        // first use connects; the time it took is published
+        assertEquals(KEYSPACE, lazy.getSchema());
+        assertNotNull(lazy.getClientInfo(CassandraConnection.INFO_CONNECT_TIME));
+        assertTrue(lazy.isValid(3));
+
+        lazy.close();
+        assertTrue(lazy.isClosed());
+    }
+
+    @Test
+    public void testIdempotentSpeculativeExecution() throws Exception
+    {
+        String url = createConnectionUrl(KEYSPACE) + "&retries=2&speculativeDelay=50&speculativeExecutions=2";
+        Connection speculative = DriverManager.getConnection(url);
+
+        // the cluster must speculate after the configured delay, and no more often than configured
+        SpeculativeExecutionPolicy policy = ((CassandraConnection) speculative).getCluster()
+                .getConfiguration().getPolicies().getSpeculativeExecutionPolicy();
+        assertTrue(policy instanceof ConstantSpeculativeExecutionPolicy);
+
+        SpeculativeExecutionPolicy.SpeculativeExecutionPlan plan =
+                policy.newPlan(KEYSPACE, new SimpleStatement("SELECT release_version FROM system.local;"));
+        assertEquals(50, plan.nextExecution(null));
+        assertEquals(50, plan.nextExecution(null));
+        assertEquals(-1, plan.nextExecution(null));
+
+        Statement stmt = speculative.createStatement();
+        assertFalse(statementExtras(stmt).isIdempotent());
+
+        statementExtras(stmt).setIdempotent(true);
+        assertTrue(statementExtras(stmt).isIdempotent());
+
+        ResultSet result = stmt.executeQuery("SELECT release_version FROM system.local;");
+        assertTrue(result.next());
+
+        speculative.close();
+    }
+
     private String showColumn(int index, ResultSet result) throws SQLException
     {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,117 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.StubHosts;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class LoadBalancingTest extends BaseDriverTest
+{
+
+    @Test
+    public void testTwoDatacenters() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://east1--west1:9042/ks?primarydc=east&backupdc=west");
+        LoadBalancingPolicy policy = CassandraConnection.createLoadBalancingPolicy(props);
+
+        Cluster cluster = StubHosts.cluster();
+
+        try
+        {
+            Host east1 = StubHosts.host(cluster, "10.0.1.1", "east");
+            Host east2 = StubHosts.host(cluster, "10.0.1.2", "east");
+            Host west1 = StubHosts.host(cluster, "10.0.2.1", "west");
+            Host north1 = StubHosts.host(cluster, "10.0.3.1", "north");
+
+            policy.init(cluster, Arrays.asList(east1, east2, west1, north1));
+
+            assertEquals(HostDistance.LOCAL, policy.distance(east1));
+            assertEquals(HostDistance.REMOTE, policy.distance(west1));
+            assertEquals(HostDistance.IGNORED, policy.distance(north1));
+
+            // every request starts in the primary datacenter, with the backup datacenter behind it
+            for (int i = 0; i < 10; i++)
+            {
+                List<Host> plan = queryPlan(policy);
+                assertTrue(plan.indexOf(east1) < 2);
+                assertTrue(plan.indexOf(east2) < 2);
+                assertEquals(3, plan.size());
+                assertEquals(west1, plan.get(2));
+            }
+
+            // with the primary datacenter down, requests fail over to the backup and nowhere else
+            policy.onDown(east1);
+            policy.onDown(east2);
+            assertEquals(Arrays.asList(west1), queryPlan(policy));
+        }
+        finally
+        {
+            cluster.close();
+        }
+    }
+
+    @Test
+    public void testPrimaryDatacenterOnly() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/ks");
+        assertNull(CassandraConnection.createLoadBalancingPolicy(props));
+
+        // the embedded server runs the simple snitch, so its datacenter is always 'datacenter1'
+        String url = String.format("%s&primarydc=datacenter1&backupdc=datacenter2", createConnectionUrl(SYSTEM));
+        java.sql.Connection connection = DriverManager.getConnection(url);
+
+        ResultSet result = connection.createStatement().executeQuery("SELECT data_center FROM system.local;");
+        assertTrue(result.next());
+        assertEquals("datacenter1", result.getString(1));
+
+        connection.close();
+    }
+
+    private static List<Host> queryPlan(LoadBalancingPolicy policy)
+    {
+        List<Host> plan = new ArrayList<Host>();
+        // statements carry the connection consistency, ONE by default; LOCAL_* levels never leave the primary
+        Iterator<Host> hosts = policy.newQueryPlan(null, new SimpleStatement("SELECT * FROM system.local")
+                .setConsistencyLevel(ConsistencyLevel.ONE));
+        while (hosts.hasNext())
+        {
+            plan.add(hosts.next());
+        }
+        return plan;
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class PagingTest extends BaseDriverTest
+{
+    static final int ROWS = 250;
+    static final String SELECT = "SELECT c, v FROM paged WHERE k = 1;";
+
+    @BeforeClass
+    public static void setUpPagedTable() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE paged (k int, c int, v text, PRIMARY KEY (k, c));");
+
+        PreparedStatement insert = con.prepareStatement("INSERT INTO paged (k, c, v) VALUES (1, ?, ?);");
+        for (int i = 0; i < ROWS; i++)
+        {
+            insert.setInt(1, i);
+            insert.setString(2, "value-" + i);
+            insert.execute();
+        }
+        insert.close();
+        stmt.close();
+    }
+
+    @Test
+    public void testFetchSize() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.setFetchSize(50);
+
+        CassandraResultSet result = (CassandraResultSet) stmt.executeQuery(SELECT);
+        assertEquals(50, result.getFetchSize());
+
+        // only the first page has arrived, less the first row already taken for reading
+        assertEquals(49, result.getAvailableWithoutFetching());
+
+        int rows = 0;
+        while (result.next())
+        {
+            assertEquals(rows, result.getInt(1));
+            assertTrue(result.getAvailableWithoutFetching() < 50);
+            rows++;
+        }
+        assertEquals(ROWS, rows);
+
+        result.close();
+        assertTrue(result.isClosed());
+        stmt.close();
+    }
+
+    @Test
+    public void testResultSetFetchSize() throws Exception
+    {
+        PreparedStatement select = con.prepareStatement(SELECT);
+        select.setFetchSize(10);
+
+        CassandraResultSet result = (CassandraResultSet) select.executeQuery();
+        assertEquals(9, result.getAvailableWithoutFetching());
+
+        // pages requested from here on take the size of the result set
+        result.setFetchSize(100);
+
+        int rows = 0;
+        while (rows < 10 && result.next()) rows++;
+        assertTrue(result.next());
+        assertEquals(99, result.getAvailableWithoutFetching());
+
+        rows++;
+        while (result.next()) rows++;
+        assertEquals(ROWS, rows);
+
+        select.close();
+    }
+
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        String url = createConnectionUrl(KEYSPACE) + "&prefetchThreshold=20";
+        Connection prefetching = DriverManager.getConnection(url);
+
+        Statement stmt = prefetching.createStatement();
+        stmt.setFetchSize(50);
+
+        CassandraResultSetExtras result = stmt.executeQuery(SELECT).unwrap(CassandraResultSetExtras.class);
+        assertEquals(20, result.getPrefetchThreshold());
+
+        int rows = 0;
+        while (result.next())
+        {
+            rows++;
+
+            // give the page requested at the threshold time to arrive, as a slow consumer would
+            if ((rows % 50 == 40) && (rows < 200))
+            {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (((CassandraResultSet) result).getAvailableWithoutFetching() <= 10 && System.currentTimeMillis() < deadline)
+                {
+                    Thread.sleep(10);
+                }
+            }
+        }
+        assertEquals(ROWS, rows);
+
+        // every later page was already there when reading reached it; the rows fill whole pages, so the cluster
+        // also sends an empty last page, which may or may not have arrived in time
+        assertEquals(4, result.getPrefetchHits());
+        assertTrue(result.getPrefetchMisses() <= 1);
+
+        prefetching.close();
+    }
+
+    @Test
+    public void testNoPrefetch() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.setFetchSize(50);
+
+        CassandraResultSetExtras result = stmt.executeQuery(SELECT).unwrap(CassandraResultSetExtras.class);
+        assertEquals(0, result.getPrefetchThreshold());
+
+        int rows = 0;
+        while (result.next()) rows++;
+        assertEquals(ROWS, rows);
+
+        // without prefetch each later page is waited for, including the empty one that follows a full last page
+        assertEquals(0, result.getPrefetchHits());
+        assertEquals(5, result.getPrefetchMisses());
+
+        try
+        {
+            result.setPrefetchThreshold(-1);
+            fail("negative threshold accepted");
+        }
+        catch (SQLException e)
+        {
+            assertEquals(0, result.getPrefetchThreshold());
+        }
+
+        stmt.close();
+    }
+
+    @Test
+    public void testResumePagingState() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.setFetchSize(100);
+
+        // read exactly the first page, then hand its position on
+        CassandraResultSetExtras first = stmt.executeQuery(SELECT).unwrap(CassandraResultSetExtras.class);
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue(first.next());
+        }
+        first.close();
+        String pagingState = first.getPagingState();
+        assertNotNull(pagingState);
+
+        // resume on another connection, starting right after the last row read
+        Connection other = DriverManager.getConnection(createConnectionUrl(KEYSPACE));
+        Statement resumed = other.createStatement();
+        statementExtras(resumed).setPagingState(pagingState);
+
+        ResultSet rest = resumed.executeQuery(SELECT);
+        int rows = 0;
+        while (rest.next())
+        {
+            assertEquals(100 + rows, rest.getInt(1));
+            rows++;
+        }
+        assertEquals(ROWS - 100, rows);
+        assertNull(rest.unwrap(CassandraResultSetExtras.class).getPagingState());
+
+        // the position is used once; executing again starts from the top
+        ResultSet again = resumed.executeQuery(SELECT);
+        assertTrue(again.next());
+        assertEquals(0, again.getInt(1));
+
+        other.close();
+        stmt.close();
+    }
+
+    @Test
+    public void testPagingStateMismatch() throws Exception
+    {
+        PreparedStatement select = con.prepareStatement("SELECT c, v FROM paged WHERE k = ?;");
+        select.setFetchSize(10);
+        select.setInt(1, 1);
+
+        ResultSet result = select.executeQuery();
+        for (int i = 0; i < 10; i++) result.next();
+        String pagingState = result.unwrap(CassandraResultSetExtras.class).getPagingState();
+
+        // the position belongs to the query with k = 1
+        select.setInt(1, 2);
+        statementExtras(select).setPagingState(pagingState);
+        try
+        {
+            select.executeQuery();
+            fail("paging state of other parameters accepted");
+        }
+        catch (SQLException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            statementExtras(select).setPagingState("not a paging state");
+            fail("malformed paging state accepted");
+        }
+        catch (SQLException e)
+        {
+            // expected
+        }
+
+        select.close();
+    }
+
+    @Test
+    public void testMaxRows() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.setMaxRows(30);
+        assertEquals(30, stmt.getMaxRows());
+
+        // one page of exactly the rows wanted, and nothing requested after it
+        CassandraResultSet result = (CassandraResultSet) stmt.executeQuery(SELECT);
+        assertEquals(29, result.getAvailableWithoutFetching());
+
+        int rows = 0;
+        while (result.next()) rows++;
+        assertEquals(30, rows);
+        assertEquals(0, result.getPrefetchMisses());
+        assertNotNull(result.getPagingState());
+
+        // smaller pages stop at the page holding the last row wanted
+        stmt.setFetchSize(10);
+        stmt.setMaxRows(25);
+        result = (CassandraResultSet) stmt.executeQuery(SELECT);
+        rows = 0;
+        while (result.next()) rows++;
+        assertEquals(25, rows);
+        assertEquals(2, result.getPrefetchMisses());
+
+        try
+        {
+            stmt.setMaxRows(-1);
+            fail("negative max rows accepted");
+        }
+        catch (SQLException e)
+        {
+            assertEquals(25, stmt.getMaxRows());
+        }
+
+        stmt.close();
+    }
+
+    @Test
+    public void testSinglePage() throws Exception
+    {
+        Statement stmt = con.createStatement();
+
+        // with no fetch size the cluster default page easily holds every row
+        ResultSet result = stmt.executeQuery(SELECT);
+        assertEquals(ROWS - 1, ((CassandraResultSet) result).getAvailableWithoutFetching());
+
+        int rows = 0;
+        while (result.next()) rows++;
+        assertEquals(ROWS, rows);
+        assertTrue(result.isAfterLast());
+
+        stmt.close();
+    }
+
+}
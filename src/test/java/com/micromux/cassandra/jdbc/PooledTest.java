@@ -20,14 +20,21 @@
  */
 package com.micromux.cassandra.jdbc;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ConsistencyLevel;
 import org.junit.Before;
 import org.junit.Test;
 
 import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class PooledTest extends BaseDriverTest
@@ -121,6 +128,143 @@ public class PooledTest extends BaseDriverTest
 		connection.close();
 	}
 
+	@Test
+	public void statementPoolLimits() throws Exception
+	{
+		CassandraDataSource connectionPoolDataSource = new CassandraDataSource(HOST, PORT, KEYSPACE, USER, PASSWORD, VERSION,CONSISTENCY,TRUST_STORE,TRUST_PASS);
+
+		PooledCassandraDataSource pooledCassandraDataSource = new PooledCassandraDataSource(connectionPoolDataSource);
+		pooledCassandraDataSource.setMaxStatements(2);
+		pooledCassandraDataSource.setMaxIdleStatementsPerQuery(1);
+
+		Connection connection = pooledCassandraDataSource.getConnection();
+
+		// only one of two statements for the same query is kept once both are closed
+		PreparedStatement first = connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?");
+		PreparedStatement second = connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?");
+		first.close();
+		second.close();
+		assertEquals(2, pooledCassandraDataSource.getStatementMisses());
+		assertEquals(1, pooledCassandraDataSource.getStatementEvictions());
+		assertEquals(1, pooledCassandraDataSource.getIdleStatementCount());
+
+		PreparedStatement statement = connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?");
+		statement.setString(1, "world");
+		ResultSet resultSet = statement.executeQuery();
+		assertTrue(resultSet.next());
+		assertEquals(1, resultSet.getInt(1));
+		statement.close();
+		assertEquals(1, pooledCassandraDataSource.getStatementHits());
+
+		// a third query pushes out the least recently used one
+		connection.prepareStatement("SELECT somekey FROM pooled_test WHERE somekey = ?").close();
+		connection.prepareStatement("SELECT someInt, somekey FROM pooled_test WHERE somekey = ?").close();
+		assertEquals(2, pooledCassandraDataSource.getStatementEvictions());
+		assertEquals(2, pooledCassandraDataSource.getIdleStatementCount());
+
+		connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?").close();
+		assertEquals(1, pooledCassandraDataSource.getStatementHits());
+		assertEquals(5, pooledCassandraDataSource.getStatementMisses());
+
+		connection.close();
+		pooledCassandraDataSource.close();
+	}
+
+	@Test
+	public void statementSettingsReset() throws Exception
+	{
+		CassandraDataSource connectionPoolDataSource = new CassandraDataSource(HOST, PORT, KEYSPACE, USER, PASSWORD, VERSION,CONSISTENCY,TRUST_STORE,TRUST_PASS);
+
+		PooledCassandraDataSource pooledCassandraDataSource = new PooledCassandraDataSource(connectionPoolDataSource);
+
+		Connection connection = pooledCassandraDataSource.getConnection();
+
+		PreparedStatement statement = connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?");
+		CassandraStatementExtras extras = statement.unwrap(CassandraStatementExtras.class);
+		BatchStatement.Type batchType = extras.getBatchType();
+		extras.setIdempotent(true);
+		extras.setBatchType(BatchStatement.Type.UNLOGGED);
+		extras.setConsistencyLevel(ConsistencyLevel.ALL);
+		statement.setMaxRows(3);
+		statement.setFetchSize(2);
+		statement.close();
+
+		// the statement handed out again is the same one, with nothing left of its last use
+		statement = connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?");
+		assertEquals(1, pooledCassandraDataSource.getStatementHits());
+		extras = statement.unwrap(CassandraStatementExtras.class);
+		assertFalse(extras.isIdempotent());
+		assertEquals(batchType, extras.getBatchType());
+		assertEquals(ConsistencyLevel.valueOf(CONSISTENCY), extras.getConsistencyLevel());
+		assertEquals(0, statement.getMaxRows());
+		assertEquals(0, statement.getFetchSize());
+		assertNull(extras.getExecutionProfile());
+		statement.close();
+
+		connection.close();
+		pooledCassandraDataSource.close();
+	}
+
+	@Test
+	public void warmUp() throws Exception
+	{
+		CassandraDataSource connectionPoolDataSource = new CassandraDataSource(HOST, PORT, KEYSPACE, USER, PASSWORD, VERSION,CONSISTENCY,TRUST_STORE,TRUST_PASS);
+
+		PooledCassandraDataSource pooledCassandraDataSource = new PooledCassandraDataSource(connectionPoolDataSource);
+		pooledCassandraDataSource.setWarmUpResource("warmup.cql");
+		assertEquals(3, pooledCassandraDataSource.getWarmUpQueries().size());
+		assertEquals("UPDATE pooled_test SET someInt = ? WHERE somekey = ?", pooledCassandraDataSource.getWarmUpQueries().get(1));
+
+		assertEquals(2, pooledCassandraDataSource.warmUp());
+
+		// preparing a warmed up query is answered from the cache of the cluster
+		CassandraConnection physicalConnection = connectionPoolDataSource.getConnection();
+		PreparedStatementCache cache = physicalConnection.getClusterReference().getPreparedStatements();
+		long hits = cache.getHits();
+
+		Connection connection = pooledCassandraDataSource.getConnection();
+		PreparedStatement statement = connection.prepareStatement("UPDATE pooled_test SET someInt = ? WHERE somekey = ?;");
+		assertEquals(hits + 1, cache.getHits());
+		connection.prepareStatement("SELECT someInt FROM pooled_test WHERE somekey = ?").close();
+		assertEquals(hits + 2, cache.getHits());
+		statement.setInt(1, 2);
+		statement.setString(2, "warm");
+		statement.executeUpdate();
+		statement.close();
+
+		connection.close();
+		physicalConnection.close();
+		pooledCassandraDataSource.close();
+	}
+
+	@Test
+	public void readStatements() throws Exception
+	{
+		String script = "-- leading comment\n"
+				+ "SELECT v FROM t WHERE k = 'a;b' AND c = '--x'; -- trailing comment\n"
+				+ "INSERT INTO t (k, v)\n  VALUES (?, 'it''s; // here'); // another\n"
+				+ "SELECT \"Odd;Name\" /* inline; comment */ FROM t;\n"
+				+ "INSERT INTO t (k, v) VALUES (1, $$semi; colon$$);\n"
+				+ "SELECT v FROM t";
+
+		List<String> statements = PooledCassandraDataSource.readStatements(new BufferedReader(new StringReader(script)));
+
+		assertEquals(Arrays.asList(
+				"SELECT v FROM t WHERE k = 'a;b' AND c = '--x'",
+				"INSERT INTO t (k, v) VALUES (?, 'it''s; // here')",
+				"SELECT \"Odd;Name\" FROM t",
+				"INSERT INTO t (k, v) VALUES (1, $$semi; colon$$)",
+				"SELECT v FROM t"), statements);
+	}
+
+	@Test(expected = SQLException.class)
+	public void missingWarmUpResource() throws Exception
+	{
+		CassandraDataSource connectionPoolDataSource = new CassandraDataSource(HOST, PORT, KEYSPACE, USER, PASSWORD, VERSION,CONSISTENCY,TRUST_STORE,TRUST_PASS);
+
+		new PooledCassandraDataSource(connectionPoolDataSource).setWarmUpResource("no-such-warmup.cql");
+	}
+
 	@Test
 	public void preparedStatementClose() throws Exception
 	{
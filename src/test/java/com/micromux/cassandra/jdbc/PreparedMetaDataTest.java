@@ -0,0 +1,117 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import static org.junit.Assert.*;
+
+public class PreparedMetaDataTest extends BaseDriverTest
+{
+
+    @BeforeClass
+    public static void setUpPeople() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE people (id int PRIMARY KEY, name text, born timestamp, score double);");
+        stmt.close();
+    }
+
+    @Test
+    public void testParameterMetaData() throws Exception
+    {
+        PreparedStatement insert = con.prepareStatement("INSERT INTO people (id, name, born, score) VALUES (?, ?, ?, ?);");
+
+        ParameterMetaData parameters = insert.getParameterMetaData();
+        assertEquals(4, parameters.getParameterCount());
+        assertEquals(Types.INTEGER, parameters.getParameterType(1));
+        assertEquals(Types.VARCHAR, parameters.getParameterType(2));
+        assertEquals(Types.TIMESTAMP, parameters.getParameterType(3));
+        assertEquals(Types.DOUBLE, parameters.getParameterType(4));
+        assertEquals(Integer.class.getName(), parameters.getParameterClassName(1));
+        assertEquals(String.class.getName(), parameters.getParameterClassName(2));
+        assertEquals(java.util.Date.class.getName(), parameters.getParameterClassName(3));
+        assertEquals("double", parameters.getParameterTypeName(4));
+        assertEquals(ParameterMetaData.parameterModeIn, parameters.getParameterMode(1));
+        assertTrue(parameters.isSigned(1));
+        assertFalse(parameters.isSigned(2));
+
+        // looked up once per statement
+        assertSame(parameters, insert.getParameterMetaData());
+
+        try
+        {
+            parameters.getParameterType(5);
+            fail("parameter index out of range accepted");
+        }
+        catch (SQLDataException e)
+        {
+            // expected
+        }
+
+        // writes return no rows
+        assertNull(insert.getMetaData());
+
+        insert.close();
+    }
+
+    @Test
+    public void testResultSetMetaData() throws Exception
+    {
+        PreparedStatement select = con.prepareStatement("SELECT id, name, score FROM people WHERE id = ?;");
+
+        // the columns are known without executing the query
+        ResultSetMetaData columns = select.getMetaData();
+        assertEquals(3, columns.getColumnCount());
+        assertEquals("id", columns.getColumnName(1));
+        assertEquals("name", columns.getColumnName(2));
+        assertEquals(Types.INTEGER, columns.getColumnType(1));
+        assertEquals(Types.VARCHAR, columns.getColumnType(2));
+        assertEquals(Types.DOUBLE, columns.getColumnType(3));
+        assertEquals("people", columns.getTableName(1));
+        assertEquals(KEYSPACE, columns.getSchemaName(1));
+        assertSame(columns, select.getMetaData());
+
+        assertEquals(1, select.getParameterMetaData().getParameterCount());
+
+        // and match those of the executed query
+        select.setInt(1, 1);
+        ResultSetMetaData executed = select.executeQuery().getMetaData();
+        assertEquals(executed.getColumnCount(), columns.getColumnCount());
+        for (int i = 1; i <= columns.getColumnCount(); i++)
+        {
+            assertEquals(executed.getColumnName(i), columns.getColumnName(i));
+            assertEquals(executed.getColumnType(i), columns.getColumnType(i));
+        }
+
+        select.close();
+    }
+
+}
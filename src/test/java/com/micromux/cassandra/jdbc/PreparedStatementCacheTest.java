@@ -0,0 +1,211 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.Test;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class PreparedStatementCacheTest extends BaseDriverTest
+{
+
+    private static final String QUERY = "SELECT release_version FROM system.local WHERE key = ?;";
+
+    @Test
+    public void testSharedAcrossConnections() throws Exception
+    {
+        // a cache size of its own gives this test a cluster, and so a cache, of its own
+        String url = createConnectionUrl(SYSTEM) + "&preparedCacheSize=2";
+        CassandraConnection first = (CassandraConnection) DriverManager.getConnection(url);
+        CassandraConnection second = (CassandraConnection) DriverManager.getConnection(url);
+        PreparedStatementCache cache = first.getClusterReference().getPreparedStatements();
+        assertSame(cache, second.getClusterReference().getPreparedStatements());
+        assertEquals(2, cache.getCapacity());
+
+        PreparedStatement statement = first.prepareStatement(QUERY);
+        statement.setString(1, "local");
+        ResultSet result = statement.executeQuery();
+        assertTrue(result.next());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the other connection reuses the statement without a round trip
+        second.prepareStatement(QUERY).close();
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+
+        Properties info = second.getClientInfo();
+        assertEquals("1", info.getProperty(PreparedStatementCache.INFO_PREPARED_HITS));
+        assertEquals("1", info.getProperty(PreparedStatementCache.INFO_PREPARED_MISSES));
+        assertEquals("0", info.getProperty(PreparedStatementCache.INFO_PREPARED_EVICTIONS));
+        assertEquals("1", info.getProperty(PreparedStatementCache.INFO_PREPARED_SIZE));
+
+        // the same text prepared in another keyspace is another statement
+        second.setSchema(KEYSPACE);
+        second.prepareStatement(QUERY).close();
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+
+        // the least recently used statement makes way
+        first.prepareStatement(QUERY).close();
+        first.prepareStatement("SELECT cluster_name FROM system.local;").close();
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        second.prepareStatement(QUERY).close();
+        assertEquals(4, cache.getMisses());
+
+        // statements that fail to prepare are not cached, so preparing them again is another miss
+        for (int i = 1; i <= 2; i++)
+        {
+            try
+            {
+                first.prepareStatement("SELECT nothing FROM system.no_such_table;");
+                fail("invalid query prepared");
+            }
+            catch (Exception e)
+            {
+                assertEquals(4 + i, cache.getMisses());
+                assertEquals(2, cache.getHits());
+            }
+        }
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testSchemaChange() throws Exception
+    {
+        String url = createConnectionUrl(KEYSPACE) + "&preparedCacheSize=10";
+        CassandraConnection connection = (CassandraConnection) DriverManager.getConnection(url);
+        PreparedStatementCache cache = connection.getClusterReference().getPreparedStatements();
+
+        Statement ddl = connection.createStatement();
+        ddl.execute("CREATE TABLE evolving (k int PRIMARY KEY, a int);");
+        ddl.execute("INSERT INTO evolving (k, a) VALUES (1, 1);");
+
+        String select = "SELECT * FROM evolving WHERE k = ?;";
+        PreparedStatement statement = connection.prepareStatement(select);
+        statement.setInt(1, 1);
+        assertEquals(2, statement.executeQuery().getMetaData().getColumnCount());
+
+        com.datastax.driver.core.PreparedStatement unrelated = connection.prepare(QUERY);
+        long generation = cache.getGeneration();
+
+        ddl.execute("ALTER TABLE evolving ADD b text;");
+
+        // the statement is prepared again in the background once the schema change is announced
+        awaitGeneration(cache, generation);
+        assertTrue(cache.getInvalidations() > 0);
+        assertEquals("" + cache.getInvalidations(), connection.getClientInfo(PreparedStatementCache.INFO_PREPARED_INVALIDATIONS));
+
+        // the statement prepared before the change switches over, keeping its parameters
+        ResultSet result = statement.executeQuery();
+        assertEquals(3, result.getMetaData().getColumnCount());
+        assertTrue(result.next());
+        assertEquals(1, result.getInt("a"));
+
+        // as do new statements for the same query, without another miss
+        long misses = cache.getMisses();
+        PreparedStatement again = connection.prepareStatement(select);
+        again.setInt(1, 1);
+        assertEquals(3, again.executeQuery().getMetaData().getColumnCount());
+        assertEquals(misses, cache.getMisses());
+
+        // statements on other tables are left alone
+        assertSame(unrelated, connection.latest(connection.preparedKey(QUERY)));
+
+        // a statement left alone through several changes still finds the newest one
+        for (String added : new String[] {"c", "d", "e"})
+        {
+            ddl.execute(String.format("ALTER TABLE evolving ADD %s int;", added));
+        }
+        assertEquals(6, awaitColumns(again, 6));
+        assertEquals(6, awaitColumns(statement, 6));
+
+        ddl.execute("DROP TABLE evolving;");
+        connection.close();
+    }
+
+    private static void awaitGeneration(PreparedStatementCache cache, long generation) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((cache.getGeneration() == generation) && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Execute a statement until its result has the expected number of columns, or ten seconds have passed; the
+     * driver may announce one schema change more than once, so the cache generation alone does not tell.
+     */
+    private static int awaitColumns(PreparedStatement statement, int expected) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        int columns = statement.executeQuery().getMetaData().getColumnCount();
+        while ((columns != expected) && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(50);
+            columns = statement.executeQuery().getMetaData().getColumnCount();
+        }
+        return columns;
+    }
+
+    @Test
+    public void testNormalize() throws Exception
+    {
+        String query = "SELECT v FROM t WHERE k = ?";
+        assertEquals(query, PreparedStatementCache.normalize(query));
+        assertEquals(query, PreparedStatementCache.normalize("  SELECT v\n  FROM t\tWHERE k = ? ;; \n"));
+
+        // quoted text, dollar quoted text and comments keep their layout
+        assertEquals("SELECT v FROM t WHERE k = 'a  b;'", PreparedStatementCache.normalize("SELECT v FROM t WHERE k = 'a  b;';"));
+        assertEquals("SELECT \"My  Column\" FROM t", PreparedStatementCache.normalize("SELECT \"My  Column\"\nFROM t"));
+        assertEquals("SELECT v FROM t WHERE k = 'it''s  here'", PreparedStatementCache.normalize("SELECT v FROM t WHERE k = 'it''s  here'"));
+        assertEquals("SELECT v FROM t WHERE k = $$a  b$$", PreparedStatementCache.normalize("SELECT v FROM t WHERE k = $$a  b$$"));
+        assertEquals("SELECT v -- the  value\nFROM t", PreparedStatementCache.normalize("SELECT v -- the  value\n   FROM t"));
+        assertEquals("SELECT v /* the  value */ FROM t", PreparedStatementCache.normalize("SELECT v /* the  value */\nFROM t"));
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception
+    {
+        String url = createConnectionUrl(SYSTEM) + "&preparedCacheSize=0";
+        CassandraConnection connection = (CassandraConnection) DriverManager.getConnection(url);
+        PreparedStatementCache cache = connection.getClusterReference().getPreparedStatements();
+
+        connection.prepareStatement(QUERY).close();
+        connection.prepareStatement(QUERY).close();
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.size());
+
+        connection.close();
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class QueryTimeoutTest extends BaseDriverTest
+{
+
+    @Test
+    public void testQueryTimeout() throws Exception
+    {
+        CassandraStatement statement = (CassandraStatement) con.createStatement();
+        assertEquals(0, statement.getQueryTimeout());
+
+        statement.setQueryTimeout(5);
+        assertEquals(5, statement.getQueryTimeout());
+
+        // the timeout travels with every request as its read timeout
+        com.datastax.driver.core.Statement request = statement.configure(new com.datastax.driver.core.SimpleStatement("SELECT * FROM system.local"));
+        assertEquals(5000, request.getReadTimeoutMillis());
+
+        assertTrue(statement.executeQuery("SELECT release_version FROM system.local;").next());
+
+        try
+        {
+            statement.setQueryTimeout(-1);
+            fail("negative timeout accepted");
+        }
+        catch (SQLException e)
+        {
+            assertEquals(5, statement.getQueryTimeout());
+        }
+
+        statement.close();
+    }
+
+    @Test
+    public void testTimeoutExpires() throws Exception
+    {
+        CassandraStatement statement = (CassandraStatement) con.createStatement();
+        statement.setQueryTimeout(1);
+
+        PendingFuture stuck = new PendingFuture();
+        long start = System.nanoTime();
+
+        try
+        {
+            statement.await(stuck);
+            fail("request did not time out");
+        }
+        catch (SQLTimeoutException e)
+        {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+        }
+
+        // the abandoned request is cancelled rather than left running
+        assertTrue(stuck.isCancelled());
+
+        statement.close();
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void testCancel() throws Exception
+    {
+        final CassandraStatement statement = (CassandraStatement) con.createStatement();
+
+        Thread canceller = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                    statement.cancel();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace(System.err);
+                }
+            }
+        });
+        canceller.start();
+
+        // no query timeout, so only the cancel ends the wait
+        statement.await(new PendingFuture());
+    }
+
+    @Test
+    public void testInFlightPermitTimeout() throws Exception
+    {
+        CassandraStatement statement = (CassandraStatement) con.createStatement();
+        Semaphore permits = new Semaphore(0);
+
+        // without a query timeout the socket read timeout bounds the wait
+        long start = System.nanoTime();
+        try
+        {
+            statement.acquirePermit(permits, 200);
+            fail("permit acquired from a saturated connection");
+        }
+        catch (SQLTransientException e)
+        {
+            assertFalse(e instanceof SQLTimeoutException);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+        }
+
+        // the query timeout takes precedence
+        statement.setQueryTimeout(1);
+        start = System.nanoTime();
+        try
+        {
+            statement.acquirePermit(permits, 60000);
+            fail("permit acquired from a saturated connection");
+        }
+        catch (SQLTransientException e)
+        {
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waited >= 1000 && waited < 10000);
+        }
+
+        // a permit released while waiting is taken
+        permits.release();
+        statement.acquirePermit(permits, 200);
+        assertEquals(0, permits.availablePermits());
+
+        statement.close();
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void testCancelPermitWait() throws Exception
+    {
+        final CassandraStatement statement = (CassandraStatement) con.createStatement();
+
+        Thread canceller = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                    statement.cancel();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace(System.err);
+                }
+            }
+        });
+        canceller.start();
+
+        statement.acquirePermit(new Semaphore(0), 60000);
+    }
+
+    /**
+     * A request that never completes, like one sent to a replica that has stopped responding.
+     */
+    private static class PendingFuture extends AbstractFuture<ResultSet> implements ResultSetFuture
+    {
+        public ResultSet getUninterruptibly()
+        {
+            try
+            {
+                return Uninterruptibles.getUninterruptibly(this);
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        public ResultSet getUninterruptibly(long timeout, TimeUnit unit) throws TimeoutException
+        {
+            try
+            {
+                return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+}
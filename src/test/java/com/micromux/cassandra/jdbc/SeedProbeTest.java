@@ -0,0 +1,94 @@
+/*
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ * 
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class SeedProbeTest
+{
+
+    @Test
+    public void testResponsiveSeedsKept() throws Exception
+    {
+        ServerSocket server = new ServerSocket(0);
+
+        try
+        {
+            // 192.0.2.1 is reserved for documentation and never answers
+            String[] hosts = Utils.splitHosts("192.0.2.1--localhost--127.0.0.1");
+            long start = System.currentTimeMillis();
+
+            SeedProbe probe = new SeedProbe(hosts, server.getLocalPort(), 1000).probe();
+
+            assertTrue("dead seed delayed the probe past the timeout", System.currentTimeMillis() - start < 3000);
+            assertEquals(2, probe.getContactPoints().size());
+            assertTrue(probe.getResponded().containsKey("localhost"));
+            assertTrue(probe.getResponded().containsKey("127.0.0.1"));
+            assertFalse(probe.getResponded().containsKey("192.0.2.1"));
+
+            Properties clientInfo = new Properties();
+            probe.describe(clientInfo);
+            assertTrue(clientInfo.getProperty(SeedProbe.INFO_SEEDS_RESPONDED).contains("localhost:"));
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testUnboundedTimeout() throws Exception
+    {
+        ServerSocket server = new ServerSocket(0);
+
+        try
+        {
+            SeedProbe probe = new SeedProbe(new String[] {"localhost", "unresolvable.invalid"}, server.getLocalPort(), 0).probe();
+
+            assertEquals(1, probe.getContactPoints().size());
+            assertEquals(1, probe.getFailed().size());
+            assertTrue(probe.getPending().isEmpty());
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testNoSeedResponds() throws Exception
+    {
+        ServerSocket server = new ServerSocket(0);
+        int port = server.getLocalPort();
+        server.close();
+
+        SeedProbe probe = new SeedProbe(new String[] {"localhost", "unresolvable.invalid"}, port, 1000).probe();
+
+        assertTrue(probe.getContactPoints().isEmpty());
+        assertEquals(2, probe.getFailed().size() + probe.getPending().size());
+    }
+
+}
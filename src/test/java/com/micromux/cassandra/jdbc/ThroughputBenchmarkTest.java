@@ -0,0 +1,148 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Throughput of the driver under different connection settings. These only run when the {@code benchmark}
+ * system property is {@code true} (for example {@code gradle test -Dbenchmark=true}); the figures are printed
+ * rather than asserted since they depend entirely on the host and cluster.
+ */
+public class ThroughputBenchmarkTest extends BaseDriverTest
+{
+    private static final int ROWS = 100;
+    private static final int THREADS = Integer.getInteger("benchmarkThreads", 32);
+    private static final long DURATION_MILLIS = Long.getLong("benchmarkMillis", 10000);
+
+    @BeforeClass
+    public static void setUpBenchmarkTable() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE throughput (k int PRIMARY KEY, v text);");
+
+        PreparedStatement insert = con.prepareStatement("INSERT INTO throughput (k, v) VALUES (?, ?);");
+        for (int i = 0; i < ROWS; i++)
+        {
+            insert.setInt(1, i);
+            insert.setString(2, "value-" + i);
+            insert.execute();
+        }
+        insert.close();
+        stmt.close();
+    }
+
+    @Test
+    public void poolingOptions() throws Exception
+    {
+        report("defaults", "");
+        report("maxRequestsPerConnection=128", "maxRequestsPerConnection=128");
+        report("maxRequestsPerConnection=4096", "maxRequestsPerConnection=4096");
+        report("connectionsPerHost=4", "coreConnectionsPerHost=4&maxConnectionsPerHost=4");
+        report("connectionsPerHost=4, maxRequestsPerConnection=4096",
+                "coreConnectionsPerHost=4&maxConnectionsPerHost=4&maxRequestsPerConnection=4096");
+        report("tcpNoDelay=false", "tcpNoDelay=false");
+    }
+
+    /**
+     * Run single-row reads from {@link #THREADS} threads sharing one connection and print the rate achieved.
+     * @param label    Name printed with the result.
+     * @param options  URL options for the connection under test.
+     */
+    static void report(String label, String options) throws Exception
+    {
+        long operations = measure(String.format("%s&%s", createConnectionUrl(KEYSPACE), options));
+        System.out.println(String.format("%-60s %10d ops/s", label, operations * 1000 / DURATION_MILLIS));
+    }
+
+    private static long measure(String url) throws Exception
+    {
+        final Connection connection = DriverManager.getConnection(url);
+        final AtomicLong operations = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        final CountDownLatch done = new CountDownLatch(THREADS);
+
+        try
+        {
+            for (int t = 0; t < THREADS; t++)
+            {
+                final int offset = t;
+                Thread worker = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            PreparedStatement select = connection.prepareStatement("SELECT v FROM throughput WHERE k = ?;");
+                            for (int i = offset; System.currentTimeMillis() < deadline; i++)
+                            {
+                                select.setInt(1, i % ROWS);
+                                ResultSet result = select.executeQuery();
+                                result.next();
+                                result.close();
+                                operations.incrementAndGet();
+                            }
+                            select.close();
+                        }
+                        catch (Exception e)
+                        {
+                            failures.incrementAndGet();
+                            e.printStackTrace(System.err);
+                        }
+                        finally
+                        {
+                            done.countDown();
+                        }
+                    }
+                });
+                worker.setDaemon(true);
+                worker.start();
+            }
+
+            done.await(DURATION_MILLIS * 2, TimeUnit.MILLISECONDS);
+            assertEquals(0, failures.get());
+        }
+        finally
+        {
+            connection.close();
+        }
+
+        return operations.get();
+    }
+
+}
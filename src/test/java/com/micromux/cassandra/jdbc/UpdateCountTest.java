@@ -0,0 +1,94 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package com.micromux.cassandra.jdbc;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class UpdateCountTest extends BaseDriverTest
+{
+
+    @BeforeClass
+    public static void setUpAccounts() throws Exception
+    {
+        Statement stmt = con.createStatement();
+        stmt.execute(String.format("USE \"%s\";", KEYSPACE));
+        stmt.execute("CREATE TABLE accounts (id int PRIMARY KEY, owner text);");
+        stmt.close();
+    }
+
+    @Test
+    public void testStatementUpdateCounts() throws Exception
+    {
+        Statement stmt = con.createStatement();
+
+        assertEquals(1, stmt.executeUpdate("INSERT INTO accounts (id, owner) VALUES (1, 'alice');"));
+        assertTrue(statementExtras(stmt).wasApplied());
+        assertEquals(1, stmt.executeUpdate("update accounts SET owner = 'bob' WHERE id = 1;"));
+
+        // the second insert finds the row already there
+        assertEquals(1, stmt.executeUpdate("INSERT INTO accounts (id, owner) VALUES (2, 'carol') IF NOT EXISTS;"));
+        assertTrue(statementExtras(stmt).wasApplied());
+        assertEquals(0, stmt.executeUpdate("INSERT INTO accounts (id, owner) VALUES (2, 'dave') IF NOT EXISTS;"));
+        assertFalse(statementExtras(stmt).wasApplied());
+
+        assertEquals(1, stmt.executeUpdate("DELETE FROM accounts WHERE id = 1;"));
+        assertTrue(statementExtras(stmt).wasApplied());
+
+        // schema changes report no rows
+        assertEquals(0, stmt.executeUpdate("CREATE INDEX accounts_owner ON accounts (owner);"));
+
+        stmt.close();
+    }
+
+    @Test
+    public void testPreparedUpdateCounts() throws Exception
+    {
+        PreparedStatement update = con.prepareStatement("UPDATE accounts SET owner = ? WHERE id = ? IF owner = ?;");
+
+        Statement stmt = con.createStatement();
+        stmt.executeUpdate("INSERT INTO accounts (id, owner) VALUES (3, 'erin');");
+
+        update.setString(1, "frank");
+        update.setInt(2, 3);
+        update.setString(3, "erin");
+        assertEquals(1, update.executeUpdate());
+        assertTrue(statementExtras(update).wasApplied());
+
+        // the condition no longer holds
+        assertEquals(0, update.executeUpdate());
+        assertFalse(statementExtras(update).wasApplied());
+        assertEquals(0, update.getUpdateCount());
+
+        update.setString(3, "frank");
+        assertEquals(1, ((CassandraPreparedStatementExtras) update).executeUpdateAsync().get().intValue());
+        assertTrue(statementExtras(update).wasApplied());
+
+        update.close();
+        stmt.close();
+    }
+
+}
@@ -22,8 +22,19 @@ package com.micromux.cassandra.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Map;
 import java.util.Properties;
 
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.RetryPolicy;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -79,6 +90,148 @@ public class UtilsUnitTest
         assertEquals("9170", props.getProperty(Utils.TAG_PORT_NUMBER));
         assertNull(props.getProperty(Utils.TAG_DATABASE_NAME));
         assertNull(props.getProperty(Utils.TAG_CQL_VERSION));
+
+        String seeds = "jdbc:cassandra://node1--node2--node3:9042/Keyspace1?connectTimeout=750";
+        props = Utils.parseURL(seeds);
+        assertEquals("750", props.getProperty(Utils.TAG_CONNECT_TIMEOUT));
+        assertArrayEquals(new String[] {"node1", "node2", "node3"}, Utils.splitHosts(props.getProperty(Utils.TAG_SERVER_NAME)));
+    }
+
+    @Test
+    public void testPoolingOptions() throws Exception
+    {
+        String pooled = "jdbc:cassandra://localhost:9042/Keyspace1?coreConnectionsPerHost=2&maxConnectionsPerHost=6" +
+                "&maxRequestsPerConnection=2048&heartbeatInterval=0&readTimeout=3000&tcpNoDelay=false";
+        Properties props = Utils.parseURL(pooled);
+
+        PoolingOptions pooling = CassandraConnection.createPoolingOptions(props);
+        assertEquals(2, pooling.getCoreConnectionsPerHost(HostDistance.LOCAL));
+        assertEquals(6, pooling.getMaxConnectionsPerHost(HostDistance.LOCAL));
+        assertEquals(2048, pooling.getMaxRequestsPerConnection(HostDistance.LOCAL));
+        assertEquals(0, pooling.getHeartbeatIntervalSeconds());
+
+        SocketOptions socket = CassandraConnection.createSocketOptions(props);
+        assertEquals(3000, socket.getReadTimeoutMillis());
+        assertEquals(SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS, socket.getConnectTimeoutMillis());
+        assertFalse(socket.getTcpNoDelay());
+
+        // a core size above the default maximum raises the maximum with it
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?coreConnectionsPerHost=4");
+        pooling = CassandraConnection.createPoolingOptions(props);
+        assertEquals(4, pooling.getCoreConnectionsPerHost(HostDistance.LOCAL));
+        assertEquals(4, pooling.getMaxConnectionsPerHost(HostDistance.LOCAL));
+    }
+
+    @Test
+    public void testCompression() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?compression=LZ4");
+        assertEquals(ProtocolOptions.Compression.LZ4, CassandraConnection.compression(props));
+
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?compression=snappy");
+        assertEquals(ProtocolOptions.Compression.SNAPPY, CassandraConnection.compression(props));
+
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1");
+        assertEquals(ProtocolOptions.Compression.NONE, CassandraConnection.compression(props));
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testBadCompression() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?compression=gzip");
+        CassandraConnection.compression(props);
+    }
+
+    @Test
+    public void testRetryPolicy() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1");
+        assertNull(CassandraConnection.createRetryPolicy(props));
+
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?retries=2");
+        RetryPolicy policy = CassandraConnection.createRetryPolicy(props);
+        assertEquals(2, ((BoundedRetryPolicy) policy).getRetries());
+
+        SimpleStatement statement = new SimpleStatement("SELECT * FROM system.local");
+        assertEquals(RetryPolicy.RetryDecision.Type.RETRY,
+                policy.onReadTimeout(statement, ConsistencyLevel.QUORUM, 2, 1, false, 1).getType());
+        assertEquals(RetryPolicy.RetryDecision.Type.RETHROW,
+                policy.onReadTimeout(statement, ConsistencyLevel.QUORUM, 2, 1, false, 2).getType());
+        assertFalse(policy.onUnavailable(statement, ConsistencyLevel.QUORUM, 2, 1, 0).isRetryCurrent());
+    }
+
+    @Test
+    public void testSpeculativeExecutionPolicy() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1");
+        assertNull(CassandraConnection.createSpeculativeExecutionPolicy(props));
+
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?speculativeDelay=100&speculativeExecutions=2");
+        assertTrue(CassandraConnection.createSpeculativeExecutionPolicy(props) instanceof ConstantSpeculativeExecutionPolicy);
+
+        props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?speculativeDelay=100&speculativeExecutions=0");
+        assertNull(CassandraConnection.createSpeculativeExecutionPolicy(props));
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testConflictingSpeculation() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?speculativeDelay=100&speculativePercentile=99");
+        CassandraConnection.createSpeculativeExecutionPolicy(props);
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testBadPercentile() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?speculativePercentile=100");
+        CassandraConnection.createSpeculativeExecutionPolicy(props);
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testNoConnectionsPerHost() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?maxConnectionsPerHost=0");
+        CassandraConnection.createPoolingOptions(props);
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testBadPoolingOption() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?maxRequestsPerConnection=lots");
+        CassandraConnection.createPoolingOptions(props);
+    }
+
+    @Test
+    public void testExecutionProfiles() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1"
+                + "?profile.Reads=consistency:local_one,fetchSize:5000"
+                + "&profile.writes=consistency:LOCAL_QUORUM,serialConsistency:LOCAL_SERIAL,readTimeout:2000,idempotent:true,retries:2");
+        Map<String, ExecutionProfile> profiles = ExecutionProfile.profiles(props);
+        assertEquals(2, profiles.size());
+
+        ExecutionProfile reads = profiles.get("reads");
+        assertEquals(ConsistencyLevel.LOCAL_ONE, reads.getConsistencyLevel());
+        assertEquals(Integer.valueOf(5000), reads.getFetchSize());
+        assertNull(reads.getReadTimeoutMillis());
+        assertNull(reads.getIdempotent());
+
+        ExecutionProfile writes = profiles.get("writes");
+        assertEquals(ConsistencyLevel.LOCAL_QUORUM, writes.getConsistencyLevel());
+        assertEquals(Boolean.TRUE, writes.getIdempotent());
+        assertEquals(2, ((BoundedRetryPolicy) writes.getRetryPolicy()).getRetries());
+
+        SimpleStatement statement = new SimpleStatement("UPDATE t SET v = 1 WHERE k = 1 IF v = 0");
+        writes.configure(statement);
+        assertEquals(ConsistencyLevel.LOCAL_SERIAL, statement.getSerialConsistencyLevel());
+        assertEquals(2000, statement.getReadTimeoutMillis());
+    }
+
+    @Test(expected = SQLNonTransientConnectionException.class)
+    public void testBadExecutionProfile() throws Exception
+    {
+        Properties props = Utils.parseURL("jdbc:cassandra://localhost:9042/Keyspace1?profile.writes=serialConsistency:QUORUM");
+        ExecutionProfile.profiles(props);
     }
   
     @Test